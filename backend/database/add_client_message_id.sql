@@ -0,0 +1,9 @@
+-- Idempotent sends: an optional sender-chosen key per message, unique per sender.
+-- Partial, so messages sent without a key do not enter the index.
+
+ALTER TABLE messages
+ADD COLUMN IF NOT EXISTS client_message_id VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_messages_sender_client_id
+ON messages(sender_id, client_message_id)
+WHERE client_message_id IS NOT NULL;
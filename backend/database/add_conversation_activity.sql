@@ -0,0 +1,24 @@
+-- Conversation metadata maintained in batches by ConversationActivityTracker,
+-- replacing the per-message update_conversation_timestamp trigger
+
+DROP TRIGGER IF EXISTS update_conversation_time ON messages;
+DROP FUNCTION IF EXISTS update_conversation_timestamp();
+
+ALTER TABLE conversations
+ADD COLUMN IF NOT EXISTS last_message_id BIGINT,
+ADD COLUMN IF NOT EXISTS last_activity_at TIMESTAMP,
+ADD COLUMN IF NOT EXISTS message_count BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from existing messages
+UPDATE conversations c
+SET last_message_id = s.last_message_id,
+    last_activity_at = s.last_activity_at,
+    message_count = s.message_count
+FROM (
+    SELECT conversation_id, MAX(id) AS last_message_id, MAX(created_at) AS last_activity_at, COUNT(*) AS message_count
+    FROM messages
+    GROUP BY conversation_id
+) s
+WHERE c.id = s.conversation_id;
+
+UPDATE conversations SET last_activity_at = updated_at WHERE last_activity_at IS NULL;
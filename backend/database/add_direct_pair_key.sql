@@ -0,0 +1,30 @@
+-- Canonical user pair on direct conversations, replacing the nested participant subquery lookup
+-- and making concurrent "open chat" calls idempotent (INSERT ... ON CONFLICT DO NOTHING)
+
+ALTER TABLE conversations
+ADD COLUMN IF NOT EXISTS direct_user_low BIGINT,
+ADD COLUMN IF NOT EXISTS direct_user_high BIGINT;
+
+-- Backfill existing two-person direct conversations; if a pair was duplicated by the old race,
+-- only the oldest conversation gets the key (the others stay reachable through the inbox)
+WITH pairs AS (
+    SELECT p.conversation_id, MIN(p.user_id) AS low_id, MAX(p.user_id) AS high_id
+    FROM conversation_participants p
+    JOIN conversations c ON c.id = p.conversation_id
+    WHERE c.is_group = FALSE
+    GROUP BY p.conversation_id
+    HAVING COUNT(*) = 2
+), ranked AS (
+    SELECT conversation_id, low_id, high_id,
+           ROW_NUMBER() OVER (PARTITION BY low_id, high_id ORDER BY conversation_id) AS rn
+    FROM pairs
+)
+UPDATE conversations c
+SET direct_user_low = r.low_id,
+    direct_user_high = r.high_id
+FROM ranked r
+WHERE c.id = r.conversation_id AND r.rn = 1 AND c.direct_user_low IS NULL;
+
+-- NULLs are distinct, so group conversations never collide
+CREATE UNIQUE INDEX IF NOT EXISTS uk_conversations_direct_pair
+ON conversations(direct_user_low, direct_user_high);
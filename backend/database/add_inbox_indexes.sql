@@ -0,0 +1,5 @@
+-- Indexes backing the set-based inbox queries in ChatService.getUserConversations
+
+-- Latest message per conversation is resolved with MAX(id) per conversation,
+-- which this index answers with a single backward probe
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_id ON messages(conversation_id, id);
@@ -0,0 +1,27 @@
+-- Inbox delta sync (GET /api/chat/conversations/sync). Versions are time-ordered stamps from
+-- TimeOrderedIdGenerator: conversations.change_version covers changes all members see,
+-- conversation_participants.change_version changes only that member sees, and tombstones
+-- record removed memberships.
+
+ALTER TABLE conversations
+ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE conversation_participants
+ADD COLUMN IF NOT EXISTS change_version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS conversation_tombstones (
+    user_id BIGINT NOT NULL,
+    conversation_id BIGINT NOT NULL,
+    change_version BIGINT NOT NULL,
+    PRIMARY KEY (user_id, conversation_id)
+);
+
+-- Existing rows keep version 0: clients without a token get the full inbox anyway
+CREATE INDEX IF NOT EXISTS idx_participants_user_change ON conversation_participants(user_id, change_version);
+
+-- Second branch of ConversationRepository.findChangedForUser: recently changed conversations first,
+-- then a membership probe, instead of walking every membership of the user
+CREATE INDEX IF NOT EXISTS idx_conversations_change_version ON conversations(change_version);
+
+-- Retention purge in ChatService.purgeTombstones
+CREATE INDEX IF NOT EXISTS idx_tombstones_change_version ON conversation_tombstones(change_version);
@@ -0,0 +1,5 @@
+-- Composite index for keyset (cursor) pagination of message history
+-- Serves "latest N", "before message X" and "after message X" as a single index range scan
+
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_created_id
+    ON messages(conversation_id, created_at, id);
@@ -0,0 +1,32 @@
+-- Per-conversation message sequence numbers, allocated by MessageBatchWriter from
+-- conversations.last_message_seq in the same transaction as the insert.
+-- Run with message writes stopped so the backfill and the counters agree.
+
+ALTER TABLE conversations
+ADD COLUMN IF NOT EXISTS last_message_seq BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE messages
+ADD COLUMN IF NOT EXISTS seq BIGINT;
+
+-- Backfill in creation order
+UPDATE messages m
+SET seq = s.seq
+FROM (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY conversation_id ORDER BY created_at, id) AS seq
+    FROM messages
+) s
+WHERE m.id = s.id AND m.seq IS NULL;
+
+UPDATE conversations c
+SET last_message_seq = s.last_seq
+FROM (
+    SELECT conversation_id, MAX(seq) AS last_seq
+    FROM messages
+    GROUP BY conversation_id
+) s
+WHERE c.id = s.conversation_id;
+
+ALTER TABLE messages ALTER COLUMN seq SET NOT NULL;
+
+-- Serves resume queries (seq > N) and rejects duplicate numbers
+CREATE UNIQUE INDEX IF NOT EXISTS idx_messages_conversation_seq ON messages(conversation_id, seq);
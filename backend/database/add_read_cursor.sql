@@ -0,0 +1,16 @@
+-- Per-participant read watermark replacing messages.is_read and message_read_receipts
+
+ALTER TABLE conversation_participants
+ADD COLUMN IF NOT EXISTS last_read_message_id BIGINT;
+
+-- Seed the watermark from the legacy read flag and the participant's own messages
+UPDATE conversation_participants p
+SET last_read_message_id = (
+    SELECT MAX(m.id) FROM messages m
+    WHERE m.conversation_id = p.conversation_id
+      AND (m.is_read = TRUE OR m.sender_id = p.user_id)
+)
+WHERE p.last_read_message_id IS NULL;
+
+-- Unread counts are a range count above the watermark, served by idx_messages_conversation_id
+-- from add_inbox_indexes.sql
@@ -0,0 +1,9 @@
+-- Indexes for /api/users/search (case-insensitive email type-ahead)
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Prefix matches: lower(email) LIKE 'abc%'
+CREATE INDEX IF NOT EXISTS idx_users_email_prefix ON users (lower(email) text_pattern_ops);
+
+-- Substring matches: lower(email) LIKE '%abc%'
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
@@ -52,20 +52,9 @@ CREATE INDEX IF NOT EXISTS idx_read_receipts_message ON message_read_receipts(me
 GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public TO chating_username;
 GRANT ALL PRIVILEGES ON ALL SEQUENCES IN SCHEMA public TO chating_username;
 
--- Function to update timestamp
-CREATE OR REPLACE FUNCTION update_conversation_timestamp()
-RETURNS TRIGGER AS $$
-BEGIN
-    UPDATE conversations 
-    SET updated_at = CURRENT_TIMESTAMP 
-    WHERE id = NEW.conversation_id;
-    RETURN NEW;
-END;
-$$ LANGUAGE plpgsql;
+-- Conversation activity (last message, last activity, message count) is maintained in batches
+-- by the application; see add_conversation_activity.sql, which also drops the old per-message trigger
 
--- Trigger to update conversation timestamp on new message
-DROP TRIGGER IF EXISTS update_conversation_time ON messages;
-CREATE TRIGGER update_conversation_time
-    AFTER INSERT ON messages
-    FOR EACH ROW
-    EXECUTE FUNCTION update_conversation_timestamp();
+-- Per-conversation message seq numbers: see add_message_seq.sql
+-- Inbox sync versions and membership tombstones: see add_inbox_sync.sql
+-- Client message ids for idempotent sends: see add_client_message_id.sql
@@ -0,0 +1,12 @@
+-- Switch identifier generation away from per-row IDENTITY so Hibernate can batch inserts
+
+-- Users, participants and read receipts use pooled sequences: Hibernate reserves 50 ids
+-- per nextval call, so the sequence increment has to match the mapping's allocationSize.
+-- Plain inserts that take nextval() directly stay safe with the pooled optimizer.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE conversation_participants_id_seq INCREMENT BY 50;
+ALTER SEQUENCE message_read_receipts_id_seq INCREMENT BY 50;
+
+-- Messages and conversations get time-ordered ids generated in the application
+-- (see TimeOrderedIdGenerator); their BIGSERIAL defaults are simply no longer used.
+-- New ids are always larger than existing serial ids, so id order remains time order.
@@ -0,0 +1,87 @@
+package com.example.backend.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send-path lookup cost of Spring's {@link DefaultSubscriptionRegistry} versus
+ * {@link ExactDestinationSubscriptionRegistry} with 1k/10k/100k conversation topics, each with
+ * {@code subscribersPerDestination} sessions. Lookups hit random destinations from several threads,
+ * so the default registry's destination cache is mostly cold, as it is with many active chats; the
+ * churn benchmark adds concurrent subscribe/unsubscribe traffic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class SubscriptionRegistryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int destinations;
+
+    @Param({"5"})
+    private int subscribersPerDestination;
+
+    @Param({"default", "exact"})
+    private String registryType;
+
+    private SubscriptionRegistry registry;
+    private Message<?>[] sends;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = "exact".equals(registryType) ? new ExactDestinationSubscriptionRegistry() : new DefaultSubscriptionRegistry();
+        sends = new Message<?>[destinations];
+        for (int d = 0; d < destinations; d++) {
+            String destination = "/topic/conversation." + d;
+            for (int s = 0; s < subscribersPerDestination; s++) {
+                registry.registerSubscription(message(SimpMessageType.SUBSCRIBE, "session-" + (d * subscribersPerDestination + s), "sub-" + d, destination));
+            }
+            sends[d] = message(SimpMessageType.MESSAGE, null, null, destination);
+        }
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> findSubscribers() {
+        return registry.findSubscriptions(sends[ThreadLocalRandom.current().nextInt(destinations)]);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> findSubscribersWithChurn() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int d = random.nextInt(destinations);
+        if (random.nextInt(100) == 0) {
+            // One in a hundred operations is a session joining and leaving a conversation
+            String session = "churn-" + Thread.currentThread().threadId();
+            registry.registerSubscription(message(SimpMessageType.SUBSCRIBE, session, "churn", "/topic/conversation." + d));
+            registry.unregisterAllSubscriptions(session);
+        }
+        return registry.findSubscriptions(sends[d]);
+    }
+
+    private static Message<byte[]> message(SimpMessageType type, String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.backend.config;
+
+import com.example.backend.entity.TimeOrderedIdentifierGenerator;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class IdGenerationConfig {
+
+    // Each application node needs its own id so time-ordered ids never collide across nodes. A single
+    // node (simple broker) may use the default 0; multi-node broker modes must set it explicitly.
+    @Bean
+    public TimeOrderedIdGenerator timeOrderedIdGenerator(Environment environment,
+                                                         @Value("${chat.broker.mode:simple}") String brokerMode,
+                                                         @Value("${chat.id.node-id:0}") int nodeId) {
+        if (!"simple".equals(brokerMode) && !environment.containsProperty("chat.id.node-id")) {
+            throw new IllegalStateException("chat.id.node-id must be set explicitly when chat.broker.mode=" + brokerMode);
+        }
+        return new TimeOrderedIdGenerator(nodeId);
+    }
+
+    // Entity ids (@TimeOrderedId) come from the same generator as ids assigned in services
+    @Bean
+    public HibernatePropertiesCustomizer timeOrderedIdHibernateProperties(TimeOrderedIdGenerator idGenerator) {
+        return properties -> properties.put(TimeOrderedIdentifierGenerator.GENERATOR_SETTING, idGenerator);
+    }
+}
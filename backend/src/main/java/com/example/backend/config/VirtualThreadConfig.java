@@ -0,0 +1,29 @@
+package com.example.backend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * Virtual-thread execution mode, switched on with {@code spring.threads.virtual.enabled=true}.
+ * Spring Boot then serves HTTP requests (and file uploads) on virtual threads; this adds virtual
+ * threads for the STOMP inbound and outbound channels. Blocking JDBC calls wait in Hikari's own
+ * queue (bounded by spring.datasource.hikari.connection-timeout), which parks virtual threads
+ * without pinning their carriers on Java 24 and later.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(new VirtualThreadTaskExecutor("stomp-inbound-"));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(new VirtualThreadTaskExecutor("stomp-outbound-"));
+    }
+}
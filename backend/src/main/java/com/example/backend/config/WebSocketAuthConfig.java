@@ -1,6 +1,7 @@
 package com.example.backend.config;
 
 import com.example.backend.security.JwtUtil;
+import com.example.backend.security.VerifiedToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.Ordered;
@@ -13,11 +14,12 @@ import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
-import java.util.ArrayList;
+import java.util.Collections;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -40,10 +42,16 @@ public class WebSocketAuthConfig implements WebSocketMessageBrokerConfigurer {
                     if (authToken != null && authToken.startsWith("Bearer ")) {
                         String token = authToken.substring(7);
                         try {
-                            String email = jwtUtil.extractEmail(token);
-                            if (jwtUtil.validateToken(token, email)) {
+                            VerifiedToken verified = jwtUtil.verify(token);
+                            if (verified.getUserId() != null) {
+                                String role = verified.getRole();
+                                String roleName = role.startsWith("ROLE_") ? role : "ROLE_" + role;
                                 UsernamePasswordAuthenticationToken authentication =
-                                    new UsernamePasswordAuthenticationToken(email, null, new ArrayList<>());
+                                    new UsernamePasswordAuthenticationToken(
+                                        verified.toPrincipal(),
+                                        null,
+                                        Collections.singletonList(new SimpleGrantedAuthority(roleName))
+                                    );
                                 accessor.setUser(authentication);
                                 SecurityContextHolder.getContext().setAuthentication(authentication);
                             }
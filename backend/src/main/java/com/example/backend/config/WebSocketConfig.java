@@ -1,30 +1,139 @@
 package com.example.backend.config;
 
+import com.example.backend.util.ConversationStripedExecutor;
+import com.example.backend.util.ExactDestinationSubscriptionRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.concurrent.ThreadFactory;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // simple: in-memory broker, single node
+    // relay: external STOMP broker (RabbitMQ, ActiveMQ) shared by all nodes
+    // postgres: in-memory broker per node, broadcasts forwarded over LISTEN/NOTIFY (PostgresClusterRelay)
+    @Value("${chat.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${chat.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    // Server and expected client heartbeat interval; a session silent for three intervals is closed
+    @Value("${chat.websocket.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable a simple memory-based message broker
-        config.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            config.enableStompBrokerRelay("/topic", "/queue")
+                .setRelayHost(relayHost)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                // Let user destinations reach sessions connected to other nodes
+                .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else if ("simple".equalsIgnoreCase(brokerMode) || "postgres".equalsIgnoreCase(brokerMode)) {
+            // Enable a simple memory-based message broker; heartbeats let it close dead sessions,
+            // which in turn drives presence expiry
+            config.enableSimpleBroker("/topic", "/queue")
+                .setTaskScheduler(messageBrokerTaskScheduler)
+                .setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis});
+        } else {
+            throw new IllegalStateException("Unknown chat.broker.mode: " + brokerMode);
+        }
         // Prefix for messages from client to server
         config.setApplicationDestinationPrefixes("/app");
         // Prefix for user-specific messages
         config.setUserDestinationPrefix("/user");
+        // Deliver broadcasts to each session in the order they were published
+        config.setPreservePublishOrder(true);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
+        // Hand frames from one session to the application in the order they were received
+        registry.setPreserveReceiveOrder(true);
         // Register the /ws endpoint for WebSocket connections
         registry.addEndpoint("/ws")
                 .setAllowedOrigins("http://localhost:3000")
                 .withSockJS();
     }
+
+    /**
+     * Executor for inbound chat sends: FIFO per conversation, parallel across conversations.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ConversationStripedExecutor conversationExecutor(
+            @Value("${chat.websocket.stripes:0}") int stripes,
+            @Value("${chat.websocket.stripe-queue-capacity:10000}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
+        int stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 2;
+        ThreadFactory threadFactory = virtualThreads
+            ? Thread.ofVirtual().name("conversation-stripe-", 0).factory()
+            : new CustomizableThreadFactory("conversation-stripe-");
+        ConversationStripedExecutor executor = new ConversationStripedExecutor(stripeCount, queueCapacity, threadFactory);
+
+        for (int i = 0; i < stripeCount; i++) {
+            int stripe = i;
+            Gauge.builder("chat.stomp.stripe.queue.depth", executor, e -> e.getQueueDepth(stripe))
+                .tag("stripe", String.valueOf(stripe))
+                .description("Pending inbound chat sends per conversation stripe")
+                .register(meterRegistry);
+        }
+        return executor;
+    }
+
+    /**
+     * Replaces the simple broker's pattern-matching registry with the exact-destination one
+     * (lock-free lookups on the send path) unless {@code chat.broker.subscription-registry=default}.
+     */
+    @Bean
+    public static BeanPostProcessor subscriptionRegistryInstaller(
+            @Value("${chat.broker.subscription-registry:exact}") String registryType) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof SimpleBrokerMessageHandler broker && "exact".equalsIgnoreCase(registryType)) {
+                    broker.setSubscriptionRegistry(new ExactDestinationSubscriptionRegistry());
+                }
+                return bean;
+            }
+        };
+    }
 }
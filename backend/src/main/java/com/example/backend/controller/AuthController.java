@@ -5,8 +5,10 @@ import com.example.backend.dto.LoginResponse;
 import com.example.backend.entity.User;
 import com.example.backend.repo.UserRepository;
 import com.example.backend.security.JwtUtil;
+import com.example.backend.service.UserRegisteredEvent;
 import com.example.backend.util.PasswordUtil;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -17,11 +19,14 @@ public class AuthController {
     private final UserRepository userRepo;
     private final JwtUtil jwtUtil;
     private final PasswordUtil passwordUtil;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AuthController(UserRepository userRepo, JwtUtil jwtUtil, PasswordUtil passwordUtil) {
+    public AuthController(UserRepository userRepo, JwtUtil jwtUtil, PasswordUtil passwordUtil,
+                          ApplicationEventPublisher eventPublisher) {
         this.userRepo = userRepo;
         this.jwtUtil = jwtUtil;
         this.passwordUtil = passwordUtil;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostMapping("/register")
@@ -32,6 +37,7 @@ public class AuthController {
         
         User user = new User(req.getEmail(), passwordUtil.hashPassword(req.getPassword()), "USER", 1);
         userRepo.save(user);
+        eventPublisher.publishEvent(new UserRegisteredEvent(user.getId(), user.getEmail(), user.getRole()));
         return "User Registered";
     }
 
@@ -44,7 +50,7 @@ public class AuthController {
             throw new RuntimeException("Invalid password");
         }
 
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole(), user.getPrivilegeLevel());
+        String token = jwtUtil.generateToken(user.getId(), user.getEmail(), user.getRole(), user.getPrivilegeLevel());
         return new LoginResponse(token, user.getEmail(), user.getRole(), user.getPrivilegeLevel());
     }
 
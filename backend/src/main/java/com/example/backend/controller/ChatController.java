@@ -1,15 +1,23 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.*;
-import com.example.backend.entity.User;
-import com.example.backend.repo.UserRepository;
+import com.example.backend.security.AuthenticatedUser;
+import com.example.backend.service.ChatErrorCode;
+import com.example.backend.service.ChatException;
 import com.example.backend.service.ChatService;
+import com.example.backend.service.ConversationBroadcaster;
+import com.example.backend.service.InboxEventPublisher;
+import com.example.backend.util.ConversationStripedExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -20,79 +28,164 @@ public class ChatController {
     private ChatService chatService;
 
     @Autowired
-    private UserRepository userRepository;
+    private ConversationBroadcaster broadcaster;
+
+    @Autowired
+    private InboxEventPublisher inboxEvents;
+
+    @Autowired
+    private ConversationStripedExecutor conversationExecutor;
 
     @GetMapping("/conversations")
-    public ResponseEntity<List<ConversationDTO>> getConversations(Authentication authentication) {
-        User user = getUserFromAuth(authentication);
+    public ResponseEntity<List<ConversationDTO>> getConversations(@AuthenticationPrincipal AuthenticatedUser user) {
         List<ConversationDTO> conversations = chatService.getUserConversations(user.getId());
         return ResponseEntity.ok(conversations);
     }
 
+    /**
+     * Conversations changed since the client's last sync token; omit {@code since} for a full load.
+     */
+    @GetMapping("/conversations/sync")
+    public ResponseEntity<ConversationSyncDTO> syncConversations(
+            @RequestParam(required = false) Long since,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(chatService.syncConversations(user.getId(), since));
+    }
+
     @PostMapping("/conversations/direct")
     public ResponseEntity<ConversationDTO> createDirectConversation(
             @RequestParam Long otherUserId,
-            Authentication authentication) {
-        User user = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser user) {
         ConversationDTO conversation = chatService.createDirectConversation(user.getId(), otherUserId);
+        // Opening an existing DM again must not re-announce it
+        if (conversation.isCreated()) {
+            inboxEvents.membershipChanged(conversation.getId(), participantUserIds(conversation), List.of());
+        }
         return ResponseEntity.ok(conversation);
     }
 
     @PostMapping("/conversations/group")
     public ResponseEntity<ConversationDTO> createGroupConversation(
             @RequestBody CreateGroupRequest request,
-            Authentication authentication) {
-        User user = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser user) {
         ConversationDTO conversation = chatService.createGroupConversation(
             request.getName(),
             request.getParticipantIds(),
             user.getId()
         );
+        inboxEvents.membershipChanged(conversation.getId(), participantUserIds(conversation), List.of());
         return ResponseEntity.ok(conversation);
     }
 
     @GetMapping("/conversations/{conversationId}/messages")
     public ResponseEntity<List<ChatMessageDTO>> getMessages(
             @PathVariable Long conversationId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "50") int size,
-            Authentication authentication) {
-        User user = getUserFromAuth(authentication);
-        List<ChatMessageDTO> messages = chatService.getMessages(conversationId, user.getId(), page, size);
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        List<ChatMessageDTO> messages = chatService.getMessages(conversationId, user.getId(), before, after, page, size);
         return ResponseEntity.ok(messages);
     }
 
     @PostMapping("/messages")
     public ResponseEntity<ChatMessageDTO> sendMessage(
             @RequestBody SendMessageRequest request,
-            Authentication authentication) {
-        User user = getUserFromAuth(authentication);
-        ChatMessageDTO message = chatService.sendMessage(
-            request.getConversationId(),
-            user.getId(),
-            request.getContent(),
-            request.getMessageType()
-        );
-        return ResponseEntity.ok(message);
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        if (request.getConversationId() == null) {
+            throw new ChatException(ChatErrorCode.INVALID_REQUEST, "Conversation id is required");
+        }
+        // Queued on the conversation's stripe with STOMP sends, so both paths persist in arrival order.
+        // The stripe only starts the write; this thread waits for it, never the stripe
+        CompletableFuture<ChatMessageDTO> sent = new CompletableFuture<>();
+        conversationExecutor.execute(request.getConversationId(), () -> {
+            try {
+                chatService.sendMessageAsync(
+                    request.getConversationId(),
+                    user.getId(),
+                    request.getContent(),
+                    request.getMessageType(),
+                    request.getClientMessageId()
+                ).whenComplete((message, error) -> {
+                    if (error != null) {
+                        sent.completeExceptionally(error);
+                        return;
+                    }
+                    try {
+                        // Same fan-out as STOMP sends; a retry resolved to the stored message was already broadcast
+                        if (!message.isDuplicate()) {
+                            broadcaster.broadcastMessage(message);
+                            inboxEvents.messageSent(message);
+                        }
+                    } finally {
+                        sent.complete(message);
+                    }
+                });
+            } catch (RuntimeException e) {
+                sent.completeExceptionally(e);
+            }
+        });
+        try {
+            return ResponseEntity.ok(sent.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replays what a client missed while disconnected; see ChatService#resumeMessages.
+     */
+    @PostMapping("/messages/resume")
+    public ResponseEntity<Map<Long, List<ChatMessageDTO>>> resumeMessages(
+            @RequestBody ResumeRequest request,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(chatService.resumeMessages(user.getId(), request.getAfterSeq()));
+    }
+
+    @PostMapping("/conversations/{conversationId}/read")
+    public ResponseEntity<ReadCursorDTO> markAsRead(
+            @PathVariable Long conversationId,
+            @RequestParam Long messageId,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        ReadCursorDTO cursor = chatService.markAsRead(conversationId, user.getId(), messageId);
+        broadcaster.broadcastReadCursor(cursor);
+        inboxEvents.readAdvanced(cursor, user.getEmail());
+        return ResponseEntity.ok(cursor);
     }
 
     @PostMapping("/conversations/{conversationId}/participants")
     public ResponseEntity<Void> addParticipant(
             @PathVariable Long conversationId,
             @RequestParam Long userId,
-            Authentication authentication) {
-        User admin = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser admin) {
         chatService.addParticipant(conversationId, userId, admin.getId());
+        inboxEvents.membershipChanged(conversationId, List.of(userId), List.of());
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/conversations/{conversationId}/participants/bulk")
+    public ResponseEntity<List<Long>> addParticipants(
+            @PathVariable Long conversationId,
+            @RequestBody AddParticipantsRequest request,
+            @AuthenticationPrincipal AuthenticatedUser admin) {
+        List<Long> added = chatService.addParticipants(conversationId, request.getUserIds(), admin.getId());
+        if (!added.isEmpty()) {
+            inboxEvents.membershipChanged(conversationId, added, List.of());
+        }
+        return ResponseEntity.ok(added);
+    }
+
     @DeleteMapping("/conversations/{conversationId}/participants/{userId}")
     public ResponseEntity<Void> removeParticipant(
             @PathVariable Long conversationId,
             @PathVariable Long userId,
-            Authentication authentication) {
-        User admin = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser admin) {
         chatService.removeParticipant(conversationId, userId, admin.getId());
+        inboxEvents.membershipChanged(conversationId, List.of(), List.of(userId));
         return ResponseEntity.ok().build();
     }
 
@@ -100,15 +193,15 @@ public class ChatController {
     public ResponseEntity<Void> makeAdmin(
             @PathVariable Long conversationId,
             @PathVariable Long userId,
-            Authentication authentication) {
-        User admin = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser admin) {
         chatService.makeAdmin(conversationId, userId, admin.getId());
+        inboxEvents.membershipChanged(conversationId, List.of(), List.of());
         return ResponseEntity.ok().build();
     }
 
-    private User getUserFromAuth(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    private static List<Long> participantUserIds(ConversationDTO conversation) {
+        return conversation.getParticipants().stream()
+            .map(ParticipantDTO::getUserId)
+            .collect(Collectors.toList());
     }
 }
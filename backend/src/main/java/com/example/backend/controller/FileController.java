@@ -1,15 +1,14 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.ChatMessageDTO;
-import com.example.backend.entity.User;
-import com.example.backend.repo.UserRepository;
+import com.example.backend.security.AuthenticatedUser;
 import com.example.backend.service.FileStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -24,17 +23,12 @@ public class FileController {
     @Autowired
     private FileStorageService fileStorageService;
 
-    @Autowired
-    private UserRepository userRepository;
-
     @PostMapping("/upload")
     public ResponseEntity<ChatMessageDTO> uploadFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam("conversationId") Long conversationId,
             @RequestParam(value = "caption", required = false) String caption,
-            Authentication authentication) {
-        
-        User user = getUserFromAuth(authentication);
+            @AuthenticationPrincipal AuthenticatedUser user) {
         
         try {
             ChatMessageDTO message = fileStorageService.storeFile(file, conversationId, user.getId(), caption);
@@ -91,10 +85,4 @@ public class FileController {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
                 .body(resource);
     }
-
-    private User getUserFromAuth(Authentication authentication) {
-        String email = authentication.getName();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-    }
 }
@@ -1,13 +1,15 @@
 package com.example.backend.controller;
 
-import com.example.backend.entity.User;
-import com.example.backend.repo.UserRepository;
+import com.example.backend.security.AuthenticatedUser;
+import com.example.backend.service.PresenceService;
+import com.example.backend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -16,32 +18,36 @@ import java.util.stream.Collectors;
 public class UserController {
 
     @Autowired
-    private UserRepository userRepository;
+    private UserService userService;
+
+    @Autowired
+    private PresenceService presenceService;
 
     @GetMapping("/search")
     public ResponseEntity<List<UserDTO>> searchUsers(
             @RequestParam String query,
-            Authentication authentication) {
-        String currentUserEmail = authentication.getName();
-        
-        List<User> users = userRepository.findAll().stream()
-            .filter(u -> u.getEmail().toLowerCase().contains(query.toLowerCase()) 
-                      && !u.getEmail().equals(currentUserEmail))
-            .limit(10)
-            .collect(Collectors.toList());
-
-        List<UserDTO> userDTOs = users.stream()
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal AuthenticatedUser user) {
+        List<UserDTO> userDTOs = userService.searchUsers(query, user.getId(), limit).stream()
             .map(u -> new UserDTO(u.getId(), u.getEmail(), u.getRole()))
             .collect(Collectors.toList());
 
         return ResponseEntity.ok(userDTOs);
     }
 
+    /**
+     * Online state of the given users, for clients to seed their view before live /user/queue/presence updates.
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<Map<Long, Boolean>> getPresence(@RequestParam List<Long> userIds) {
+        if (userIds.size() > 500) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(presenceService.getPresence(userIds));
+    }
+
     @GetMapping("/me")
-    public ResponseEntity<UserDTO> getCurrentUser(Authentication authentication) {
-        String email = authentication.getName();
-        User user = userRepository.findByEmail(email)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+    public ResponseEntity<UserDTO> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser user) {
         return ResponseEntity.ok(new UserDTO(user.getId(), user.getEmail(), user.getRole()));
     }
 
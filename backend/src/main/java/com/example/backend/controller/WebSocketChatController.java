@@ -1,16 +1,28 @@
 package com.example.backend.controller;
 
 import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.MarkReadRequest;
+import com.example.backend.dto.ReadCursorDTO;
 import com.example.backend.dto.SendMessageRequest;
+import com.example.backend.security.AuthenticatedUser;
+import com.example.backend.service.ChatErrorCode;
+import com.example.backend.service.ChatException;
 import com.example.backend.service.ChatService;
+import com.example.backend.service.ConversationBroadcaster;
+import com.example.backend.service.InboxEventPublisher;
+import com.example.backend.service.SendAcknowledger;
+import com.example.backend.service.TypingAggregator;
+import com.example.backend.util.ConversationStripedExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class WebSocketChatController {
@@ -19,46 +31,105 @@ public class WebSocketChatController {
     private ChatService chatService;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ConversationBroadcaster broadcaster;
+
+    @Autowired
+    private ConversationStripedExecutor conversationExecutor;
+
+    @Autowired
+    private TypingAggregator typingAggregator;
+
+    @Autowired
+    private InboxEventPublisher inboxEvents;
+
+    @Autowired
+    private SendAcknowledger acks;
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload SendMessageRequest request, Principal principal) {
+    public void sendMessage(@Payload SendMessageRequest request, Principal principal,
+                            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        // Every send is answered on the sending session's /user/queue/acks, success or failure
+        String user = principal.getName();
+        String clientMessageId = request.getClientMessageId();
+        Long conversationId = request.getConversationId();
         try {
-            // Extract user ID from principal (email)
-            String email = principal.getName();
-            Long senderId = getUserIdFromEmail(email);
+            Long senderId = AuthenticatedUser.from(principal).getId();
+            if (conversationId == null) {
+                throw new ChatException(ChatErrorCode.INVALID_REQUEST, "Conversation id is required");
+            }
+            // Sending ends the sender's typing state without waiting for it to expire
+            typingAggregator.stopTyping(conversationId, user);
+
+            // A retry of a send already accepted here: nothing to write, the original broadcast stands
+            CompletableFuture<ChatMessageDTO> previous = chatService.findRecentSend(senderId, clientMessageId);
+            if (previous != null) {
+                previous.whenComplete((message, error) -> {
+                    if (error != null) {
+                        acks.reject(user, sessionId, clientMessageId, conversationId, error);
+                    } else {
+                        acks.acknowledge(user, sessionId, clientMessageId, message);
+                    }
+                });
+                return;
+            }
+
+            // Sends for one conversation are persisted and broadcast strictly in arrival order
+            conversationExecutor.execute(conversationId, () -> {
+                try {
+                    // Save message; the broadcast happens once it is committed
+                    chatService.sendMessageAsync(
+                        conversationId,
+                        senderId,
+                        request.getContent(),
+                        request.getMessageType(),
+                        clientMessageId
+                    ).whenComplete((message, error) -> {
+                        if (error != null) {
+                            acks.reject(user, sessionId, clientMessageId, conversationId, error);
+                            return;
+                        }
+
+                        // A retry resolved to the stored message was broadcast and counted when first sent
+                        if (!message.isDuplicate()) {
+                            // Send to conversation topic, and a preview to every member's inbox queue
+                            broadcaster.broadcastMessage(message);
+                            inboxEvents.messageSent(message);
+                        }
+                        acks.acknowledge(user, sessionId, clientMessageId, message);
+                    });
+                } catch (RuntimeException e) {
+                    acks.reject(user, sessionId, clientMessageId, conversationId, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            acks.reject(user, sessionId, clientMessageId, conversationId, e);
+        }
+    }
 
-            // Save message
-            ChatMessageDTO message = chatService.sendMessage(
+    @MessageMapping("/chat.read")
+    public void markAsRead(@Payload MarkReadRequest request, Principal principal) {
+        try {
+            Long userId = AuthenticatedUser.from(principal).getId();
+            ReadCursorDTO cursor = chatService.markAsRead(
                 request.getConversationId(),
-                senderId,
-                request.getContent(),
-                request.getMessageType()
+                userId,
+                request.getMessageId()
             );
 
-            // Send to conversation topic
-            messagingTemplate.convertAndSend(
-                "/topic/conversation." + request.getConversationId(),
-                message
-            );
+            broadcaster.broadcastReadCursor(cursor);
+            inboxEvents.readAdvanced(cursor, principal.getName());
         } catch (Exception e) {
-            System.err.println("Error sending message: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("Error marking messages as read: " + e.getMessage());
         }
     }
 
     @MessageMapping("/chat.typing")
     public void sendTypingIndicator(@Payload TypingIndicator indicator, Principal principal) {
-        messagingTemplate.convertAndSend(
-            "/topic/conversation." + indicator.getConversationId() + ".typing",
-            new TypingIndicator(indicator.getConversationId(), principal.getName(), indicator.getIsTyping())
-        );
-    }
-
-    private Long getUserIdFromEmail(String email) {
-        // This should be implemented to fetch user ID from email
-        // For now, returning a placeholder
-        return 1L; // TODO: Implement proper user lookup
+        if (indicator.getConversationId() == null) {
+            return;
+        }
+        // Coalesced and broadcast as a TypingStateDTO on the aggregator's next tick
+        typingAggregator.update(indicator.getConversationId(), principal.getName(), Boolean.TRUE.equals(indicator.getIsTyping()));
     }
 
     public static class TypingIndicator {
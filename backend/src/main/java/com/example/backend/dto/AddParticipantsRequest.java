@@ -0,0 +1,16 @@
+package com.example.backend.dto;
+
+import java.util.List;
+
+public class AddParticipantsRequest {
+    private List<Long> userIds;
+
+    public AddParticipantsRequest() {}
+
+    public AddParticipantsRequest(List<Long> userIds) {
+        this.userIds = userIds;
+    }
+
+    public List<Long> getUserIds() { return userIds; }
+    public void setUserIds(List<Long> userIds) { this.userIds = userIds; }
+}
@@ -1,8 +1,11 @@
 package com.example.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class ChatMessageDTO {
     private Long id;
     private Long conversationId;
+    private Long seq;
     private Long senderId;
     private String senderEmail;
     private String content;
@@ -14,6 +17,10 @@ public class ChatMessageDTO {
     private String thumbnailUrl;
     private String createdAt;
     private Boolean isRead;
+    // Echo of the sender's idempotency key, so the sender can match its optimistic message
+    private String clientMessageId;
+    // Set when a send resolved to an already stored message (a retry), which was broadcast back then; not serialized
+    private boolean duplicate;
 
     public ChatMessageDTO() {}
 
@@ -54,6 +61,9 @@ public class ChatMessageDTO {
     public Long getConversationId() { return conversationId; }
     public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
 
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
     public Long getSenderId() { return senderId; }
     public void setSenderId(Long senderId) { this.senderId = senderId; }
 
@@ -86,4 +96,11 @@ public class ChatMessageDTO {
 
     public Boolean getIsRead() { return isRead; }
     public void setIsRead(Boolean isRead) { this.isRead = isRead; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
+    @JsonIgnore
+    public boolean isDuplicate() { return duplicate; }
+    public void setDuplicate(boolean duplicate) { this.duplicate = duplicate; }
 }
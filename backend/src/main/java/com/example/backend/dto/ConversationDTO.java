@@ -1,5 +1,7 @@
 package com.example.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class ConversationDTO {
@@ -11,6 +13,8 @@ public class ConversationDTO {
     private Long unreadCount;
     private String createdAt;
     private String updatedAt;
+    // Set when this call created the conversation, so callers announce it only once; not serialized
+    private boolean created;
 
     public ConversationDTO() {}
 
@@ -38,4 +42,8 @@ public class ConversationDTO {
 
     public String getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(String updatedAt) { this.updatedAt = updatedAt; }
+
+    @JsonIgnore
+    public boolean isCreated() { return created; }
+    public void setCreated(boolean created) { this.created = created; }
 }
@@ -0,0 +1,35 @@
+package com.example.backend.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConversationSyncDTO {
+    // Token to send as "since" on the next sync
+    private Long version;
+    // True when the client sent no token and conversations holds the whole inbox
+    private Boolean full;
+    private List<ConversationDTO> conversations = new ArrayList<>();
+    private List<Long> removedConversationIds = new ArrayList<>();
+
+    public ConversationSyncDTO() {}
+
+    public ConversationSyncDTO(Long version, Boolean full, List<ConversationDTO> conversations,
+                               List<Long> removedConversationIds) {
+        this.version = version;
+        this.full = full;
+        this.conversations = conversations;
+        this.removedConversationIds = removedConversationIds;
+    }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public Boolean getFull() { return full; }
+    public void setFull(Boolean full) { this.full = full; }
+
+    public List<ConversationDTO> getConversations() { return conversations; }
+    public void setConversations(List<ConversationDTO> conversations) { this.conversations = conversations; }
+
+    public List<Long> getRemovedConversationIds() { return removedConversationIds; }
+    public void setRemovedConversationIds(List<Long> removedConversationIds) { this.removedConversationIds = removedConversationIds; }
+}
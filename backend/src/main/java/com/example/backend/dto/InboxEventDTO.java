@@ -0,0 +1,35 @@
+package com.example.backend.dto;
+
+public class InboxEventDTO {
+    // MESSAGE, READ, JOINED, LEFT or UPDATED (participants changed)
+    private String type;
+    private Long conversationId;
+    // MESSAGE: preview of the new message, content shortened
+    private ChatMessageDTO lastMessage;
+    // MESSAGE: change to the recipient's unread count (0 for the sender's own devices)
+    private Integer unreadDelta;
+    // READ: the recipient's new read watermark, sent to their other sessions
+    private Long lastReadMessageId;
+
+    public InboxEventDTO() {}
+
+    public InboxEventDTO(String type, Long conversationId) {
+        this.type = type;
+        this.conversationId = conversationId;
+    }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public ChatMessageDTO getLastMessage() { return lastMessage; }
+    public void setLastMessage(ChatMessageDTO lastMessage) { this.lastMessage = lastMessage; }
+
+    public Integer getUnreadDelta() { return unreadDelta; }
+    public void setUnreadDelta(Integer unreadDelta) { this.unreadDelta = unreadDelta; }
+
+    public Long getLastReadMessageId() { return lastReadMessageId; }
+    public void setLastReadMessageId(Long lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
+}
@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+public class MarkReadRequest {
+    private Long conversationId;
+    private Long messageId;
+
+    public MarkReadRequest() {}
+
+    public MarkReadRequest(Long conversationId, Long messageId) {
+        this.conversationId = conversationId;
+        this.messageId = messageId;
+    }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+}
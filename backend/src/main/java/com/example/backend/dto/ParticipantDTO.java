@@ -6,6 +6,7 @@ public class ParticipantDTO {
     private String userEmail;
     private Boolean isAdmin;
     private String joinedAt;
+    private Long lastReadMessageId;
 
     public ParticipantDTO() {}
 
@@ -17,6 +18,12 @@ public class ParticipantDTO {
         this.joinedAt = joinedAt;
     }
 
+    public ParticipantDTO(Long id, Long userId, String userEmail, Boolean isAdmin, String joinedAt,
+                          Long lastReadMessageId) {
+        this(id, userId, userEmail, isAdmin, joinedAt);
+        this.lastReadMessageId = lastReadMessageId;
+    }
+
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -32,4 +39,7 @@ public class ParticipantDTO {
 
     public String getJoinedAt() { return joinedAt; }
     public void setJoinedAt(String joinedAt) { this.joinedAt = joinedAt; }
+
+    public Long getLastReadMessageId() { return lastReadMessageId; }
+    public void setLastReadMessageId(Long lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
 }
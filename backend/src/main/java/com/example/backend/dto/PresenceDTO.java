@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+public class PresenceDTO {
+    private Long userId;
+    private Boolean online;
+
+    public PresenceDTO() {}
+
+    public PresenceDTO(Long userId, Boolean online) {
+        this.userId = userId;
+        this.online = online;
+    }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Boolean getOnline() { return online; }
+    public void setOnline(Boolean online) { this.online = online; }
+}
@@ -0,0 +1,24 @@
+package com.example.backend.dto;
+
+public class ReadCursorDTO {
+    private Long conversationId;
+    private Long userId;
+    private Long lastReadMessageId;
+
+    public ReadCursorDTO() {}
+
+    public ReadCursorDTO(Long conversationId, Long userId, Long lastReadMessageId) {
+        this.conversationId = conversationId;
+        this.userId = userId;
+        this.lastReadMessageId = lastReadMessageId;
+    }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getLastReadMessageId() { return lastReadMessageId; }
+    public void setLastReadMessageId(Long lastReadMessageId) { this.lastReadMessageId = lastReadMessageId; }
+}
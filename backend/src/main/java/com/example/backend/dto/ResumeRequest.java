@@ -0,0 +1,17 @@
+package com.example.backend.dto;
+
+import java.util.Map;
+
+public class ResumeRequest {
+    // conversation id -> highest seq the client has applied
+    private Map<Long, Long> afterSeq;
+
+    public ResumeRequest() {}
+
+    public ResumeRequest(Map<Long, Long> afterSeq) {
+        this.afterSeq = afterSeq;
+    }
+
+    public Map<Long, Long> getAfterSeq() { return afterSeq; }
+    public void setAfterSeq(Map<Long, Long> afterSeq) { this.afterSeq = afterSeq; }
+}
@@ -0,0 +1,42 @@
+package com.example.backend.dto;
+
+public class SendAckDTO {
+    private String clientMessageId;
+    private Long conversationId;
+    private Boolean success;
+    // Set on success
+    private Long messageId;
+    private Long seq;
+    // Set on failure: a ChatErrorCode name and a human-readable reason
+    private String errorCode;
+    private String error;
+
+    public SendAckDTO() {}
+
+    public SendAckDTO(String clientMessageId, Long conversationId, Boolean success) {
+        this.clientMessageId = clientMessageId;
+        this.conversationId = conversationId;
+        this.success = success;
+    }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Boolean getSuccess() { return success; }
+    public void setSuccess(Boolean success) { this.success = success; }
+
+    public Long getMessageId() { return messageId; }
+    public void setMessageId(Long messageId) { this.messageId = messageId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+
+    public String getErrorCode() { return errorCode; }
+    public void setErrorCode(String errorCode) { this.errorCode = errorCode; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
@@ -4,6 +4,8 @@ public class SendMessageRequest {
     private Long conversationId;
     private String content;
     private String messageType;
+    // Optional idempotency key (max 64 chars); a retry with the same key returns the original message
+    private String clientMessageId;
 
     public SendMessageRequest() {}
 
@@ -21,4 +23,7 @@ public class SendMessageRequest {
 
     public String getMessageType() { return messageType; }
     public void setMessageType(String messageType) { this.messageType = messageType; }
+
+    public String getClientMessageId() { return clientMessageId; }
+    public void setClientMessageId(String clientMessageId) { this.clientMessageId = clientMessageId; }
 }
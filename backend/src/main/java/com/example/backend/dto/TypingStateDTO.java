@@ -0,0 +1,31 @@
+package com.example.backend.dto;
+
+import java.util.List;
+
+/**
+ * Everyone typing in a conversation on one node, broadcast by that node's typing aggregator when the
+ * set changes. With several nodes each sends its own set, so clients keep the latest set per
+ * {@code nodeId} and show the union.
+ */
+public class TypingStateDTO {
+    private Long conversationId;
+    private Integer nodeId;
+    private List<String> userEmails;
+
+    public TypingStateDTO() {}
+
+    public TypingStateDTO(Long conversationId, Integer nodeId, List<String> userEmails) {
+        this.conversationId = conversationId;
+        this.nodeId = nodeId;
+        this.userEmails = userEmails;
+    }
+
+    public Long getConversationId() { return conversationId; }
+    public void setConversationId(Long conversationId) { this.conversationId = conversationId; }
+
+    public Integer getNodeId() { return nodeId; }
+    public void setNodeId(Integer nodeId) { this.nodeId = nodeId; }
+
+    public List<String> getUserEmails() { return userEmails; }
+    public void setUserEmails(List<String> userEmails) { this.userEmails = userEmails; }
+}
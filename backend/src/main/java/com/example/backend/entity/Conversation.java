@@ -10,7 +10,7 @@ import java.util.Set;
 public class Conversation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @Column(name = "name")
@@ -25,6 +25,35 @@ public class Conversation {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Maintained in batches by ConversationActivityTracker, not on the message insert path
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "message_count")
+    private Long messageCount = 0L;
+
+    // Highest message seq handed out; advanced only by MessageBatchWriter, in the insert transaction.
+    // Never written by Hibernate, so the column default is what a new conversation starts from.
+    @Column(name = "last_message_seq", insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private Long lastMessageSeq;
+
+    // Inbox sync version: a time-ordered stamp, raised whenever what members see of this conversation changes.
+    // Set by the creator before insert; later bumps are bulk updates (ConversationRepository, ConversationActivityTracker)
+    @Column(name = "change_version", updatable = false)
+    private Long changeVersion;
+
+    // Canonical (min, max) user pair for direct conversations; null for groups. Unique together through the
+    // uk_conversations_direct_pair index from database/add_direct_pair_key.sql
+    @Column(name = "direct_user_low")
+    private Long directUserLow;
+
+    @Column(name = "direct_user_high")
+    private Long directUserHigh;
+
     @OneToMany(mappedBy = "conversation", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<ConversationParticipant> participants = new HashSet<>();
 
@@ -88,6 +117,58 @@ public class Conversation {
         this.updatedAt = updatedAt;
     }
 
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public LocalDateTime getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    public void setLastActivityAt(LocalDateTime lastActivityAt) {
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public Long getMessageCount() {
+        return messageCount;
+    }
+
+    public void setMessageCount(Long messageCount) {
+        this.messageCount = messageCount;
+    }
+
+    public Long getLastMessageSeq() {
+        return lastMessageSeq;
+    }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(Long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
+
+    public Long getDirectUserLow() {
+        return directUserLow;
+    }
+
+    public void setDirectUserLow(Long directUserLow) {
+        this.directUserLow = directUserLow;
+    }
+
+    public Long getDirectUserHigh() {
+        return directUserHigh;
+    }
+
+    public void setDirectUserHigh(Long directUserHigh) {
+        this.directUserHigh = directUserHigh;
+    }
+
     public Set<ConversationParticipant> getParticipants() {
         return participants;
     }
@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 public class ConversationParticipant {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conversation_participants_seq")
+    @SequenceGenerator(name = "conversation_participants_seq", sequenceName = "conversation_participants_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -25,6 +26,14 @@ public class ConversationParticipant {
     @Column(name = "joined_at")
     private LocalDateTime joinedAt;
 
+    // Read watermark: every message in the conversation with id <= this value has been read
+    @Column(name = "last_read_message_id")
+    private Long lastReadMessageId;
+
+    // Inbox sync version for changes only this member sees (joining, their unread count); set by the creator before insert
+    @Column(name = "change_version")
+    private Long changeVersion;
+
     public ConversationParticipant() {
         this.joinedAt = LocalDateTime.now();
     }
@@ -76,4 +85,20 @@ public class ConversationParticipant {
     public void setJoinedAt(LocalDateTime joinedAt) {
         this.joinedAt = joinedAt;
     }
+
+    public Long getLastReadMessageId() {
+        return lastReadMessageId;
+    }
+
+    public void setLastReadMessageId(Long lastReadMessageId) {
+        this.lastReadMessageId = lastReadMessageId;
+    }
+
+    public Long getChangeVersion() {
+        return changeVersion;
+    }
+
+    public void setChangeVersion(Long changeVersion) {
+        this.changeVersion = changeVersion;
+    }
 }
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 public class Message {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @TimeOrderedId
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -19,6 +19,10 @@ public class Message {
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
+    // Position within the conversation (1, 2, 3, ...), assigned at insert in commit order
+    @Column(name = "seq", nullable = false)
+    private Long seq;
+
     @Column(name = "content", nullable = false, columnDefinition = "TEXT")
     private String content;
 
@@ -46,6 +50,10 @@ public class Message {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Optional sender-chosen idempotency key, unique per sender
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     public Message() {
         this.createdAt = LocalDateTime.now();
     }
@@ -82,6 +90,14 @@ public class Message {
         this.sender = sender;
     }
 
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
+
     public String getContent() {
         return content;
     }
@@ -146,6 +162,14 @@ public class Message {
         this.isRead = isRead;
     }
 
+    public String getClientMessageId() {
+        return clientMessageId;
+    }
+
+    public void setClientMessageId(String clientMessageId) {
+        this.clientMessageId = clientMessageId;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -3,12 +3,18 @@ package com.example.backend.entity;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+/**
+ * Per-message read receipt. Superseded by the per-participant read watermark in
+ * {@link ConversationParticipant#getLastReadMessageId()}; kept for existing data only.
+ */
+@Deprecated
 @Entity
 @Table(name = "message_read_receipts")
 public class MessageReadReceipt {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_read_receipts_seq")
+    @SequenceGenerator(name = "message_read_receipts_seq", sequenceName = "message_read_receipts_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,40 @@
+package com.example.backend.entity;
+
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+public class TimeOrderedIdentifierGenerator implements BeforeExecutionGenerator {
+
+    // Session factory setting holding the context's TimeOrderedIdGenerator bean (see IdGenerationConfig)
+    public static final String GENERATOR_SETTING = "chat.id.generator";
+
+    private final TimeOrderedIdGenerator idGenerator;
+
+    public TimeOrderedIdentifierGenerator(TimeOrderedId annotation, Member member, GeneratorCreationContext context) {
+        Object configured = context.getServiceRegistry().requireService(ConfigurationService.class)
+            .getSettings().get(GENERATOR_SETTING);
+        if (!(configured instanceof TimeOrderedIdGenerator generator)) {
+            throw new IllegalStateException(GENERATOR_SETTING + " is not set; see IdGenerationConfig");
+        }
+        this.idGenerator = generator;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return idGenerator.nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
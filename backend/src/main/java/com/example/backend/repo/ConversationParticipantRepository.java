@@ -2,10 +2,12 @@ package com.example.backend.repo;
 
 import com.example.backend.entity.ConversationParticipant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,12 +16,25 @@ public interface ConversationParticipantRepository extends JpaRepository<Convers
 
     List<ConversationParticipant> findByConversationId(Long conversationId);
 
+    @Query("SELECT p FROM ConversationParticipant p JOIN FETCH p.user WHERE p.conversation.id IN :conversationIds")
+    List<ConversationParticipant> findWithUserByConversationIdIn(@Param("conversationIds") Collection<Long> conversationIds);
+
     @Query("SELECT p FROM ConversationParticipant p WHERE p.conversation.id = :conversationId AND p.user.id = :userId")
     Optional<ConversationParticipant> findByConversationIdAndUserId(
         @Param("conversationId") Long conversationId, 
         @Param("userId") Long userId
     );
 
+    @Query("SELECT p.user.id FROM ConversationParticipant p WHERE p.conversation.id = :conversationId AND p.user.id IN :userIds")
+    List<Long> findUserIdsByConversationIdAndUserIdIn(
+        @Param("conversationId") Long conversationId,
+        @Param("userIds") Collection<Long> userIds
+    );
+
+    // [user id, email] of every member, for user-destination fan-out
+    @Query("SELECT u.id, u.email FROM ConversationParticipant p JOIN p.user u WHERE p.conversation.id = :conversationId")
+    List<Object[]> findMemberIdsAndEmails(@Param("conversationId") Long conversationId);
+
     @Query("SELECT p FROM ConversationParticipant p WHERE p.conversation.id = :conversationId AND p.isAdmin = true")
     List<ConversationParticipant> findAdminsByConversationId(@Param("conversationId") Long conversationId);
 
@@ -27,4 +42,63 @@ public interface ConversationParticipantRepository extends JpaRepository<Convers
     Long countByConversationId(@Param("conversationId") Long conversationId);
 
     void deleteByConversationIdAndUserId(Long conversationId, Long userId);
+
+    // Only ever moves the watermark forward, so out-of-order or concurrent marks are harmless.
+    // The reader's unread count changes, so their row is stamped for inbox sync
+    @Modifying
+    @Query("UPDATE ConversationParticipant p SET p.lastReadMessageId = :messageId, p.changeVersion = :version " +
+           "WHERE p.conversation.id = :conversationId AND p.user.id = :userId " +
+           "AND (p.lastReadMessageId IS NULL OR p.lastReadMessageId < :messageId)")
+    int advanceLastReadMessageId(
+        @Param("conversationId") Long conversationId,
+        @Param("userId") Long userId,
+        @Param("messageId") Long messageId,
+        @Param("version") Long version
+    );
+
+    // Remembers a removed membership so the member's next inbox sync can drop the conversation
+    @Modifying
+    @Query(value = "INSERT INTO conversation_tombstones (user_id, conversation_id, change_version) " +
+                   "VALUES (:userId, :conversationId, :version) " +
+                   "ON CONFLICT (user_id, conversation_id) DO UPDATE SET change_version = EXCLUDED.change_version",
+           nativeQuery = true)
+    int insertTombstone(
+        @Param("userId") Long userId,
+        @Param("conversationId") Long conversationId,
+        @Param("version") Long version
+    );
+
+    // Tombstones older than the sync retention; clients with an older token get a full inbox instead
+    @Modifying
+    @Query(value = "DELETE FROM conversation_tombstones WHERE change_version < :before", nativeQuery = true)
+    int deleteTombstonesBefore(@Param("before") Long before);
+
+    // Conversations the user left after the given version and has not rejoined since
+    @Query(value = "SELECT t.conversation_id FROM conversation_tombstones t " +
+                   "WHERE t.user_id = :userId AND t.change_version > :since " +
+                   "AND NOT EXISTS (SELECT 1 FROM conversation_participants p " +
+                   "WHERE p.user_id = t.user_id AND p.conversation_id = t.conversation_id)",
+           nativeQuery = true)
+    List<Long> findRemovedConversationIds(@Param("userId") Long userId, @Param("since") Long since);
+
+    // [changed user id, contact user id, contact email] for the online users sharing a conversation with the
+    // given users; online ids are bound as one array so the list size is not limited by bind parameters
+    @Query(value = "SELECT DISTINCT p1.user_id, p2.user_id, u.email FROM conversation_participants p1 " +
+                   "JOIN conversation_participants p2 ON p2.conversation_id = p1.conversation_id " +
+                   "AND p2.user_id <> p1.user_id " +
+                   "JOIN users u ON u.id = p2.user_id " +
+                   "WHERE p1.user_id IN (:userIds) AND p2.user_id = ANY(:onlineUserIds)",
+           nativeQuery = true)
+    List<Object[]> findOnlineContactsOfUsers(
+        @Param("userIds") Collection<Long> userIds,
+        @Param("onlineUserIds") Long[] onlineUserIds
+    );
+
+    // [conversation id, last message seq] for those of the given conversations the user belongs to
+    @Query("SELECT c.id, c.lastMessageSeq FROM ConversationParticipant p JOIN p.conversation c " +
+           "WHERE p.user.id = :userId AND c.id IN :conversationIds")
+    List<Object[]> findLastMessageSeqsForMember(
+        @Param("userId") Long userId,
+        @Param("conversationIds") Collection<Long> conversationIds
+    );
 }
@@ -2,26 +2,58 @@ package com.example.backend.repo;
 
 import com.example.backend.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
 
-    @Query("SELECT c FROM Conversation c JOIN c.participants p WHERE p.user.id = :userId ORDER BY c.updatedAt DESC")
+    @Query("SELECT c FROM Conversation c JOIN c.participants p WHERE p.user.id = :userId " +
+           "ORDER BY COALESCE(c.lastActivityAt, c.updatedAt) DESC")
     List<Conversation> findByUserId(@Param("userId") Long userId);
 
     @Query("SELECT c FROM Conversation c WHERE c.isGroup = true AND c.id IN " +
            "(SELECT p.conversation.id FROM ConversationParticipant p WHERE p.user.id = :userId)")
     List<Conversation> findGroupsByUserId(@Param("userId") Long userId);
 
-    @Query("SELECT c FROM Conversation c WHERE c.isGroup = false AND c.id IN " +
-           "(SELECT p1.conversation.id FROM ConversationParticipant p1 " +
-           "WHERE p1.user.id = :user1Id AND p1.conversation.id IN " +
-           "(SELECT p2.conversation.id FROM ConversationParticipant p2 WHERE p2.user.id = :user2Id))")
-    Optional<Conversation> findDirectConversation(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+    // Single probe of the unique pair index; callers pass the ids already ordered low/high
+    @Query("SELECT c FROM Conversation c WHERE c.directUserLow = :lowUserId AND c.directUserHigh = :highUserId")
+    Optional<Conversation> findDirectConversation(@Param("lowUserId") Long lowUserId, @Param("highUserId") Long highUserId);
+
+    // Returns 0 when another transaction already owns the pair; see database/add_direct_pair_key.sql
+    @Modifying
+    @Query(value = "INSERT INTO conversations (id, name, is_group, created_at, updated_at, message_count, change_version, direct_user_low, direct_user_high) " +
+                   "VALUES (:id, NULL, false, :now, :now, 0, :id, :lowUserId, :highUserId) " +
+                   "ON CONFLICT (direct_user_low, direct_user_high) DO NOTHING",
+           nativeQuery = true)
+    int insertDirectConversationIfAbsent(
+        @Param("id") Long id,
+        @Param("lowUserId") Long lowUserId,
+        @Param("highUserId") Long highUserId,
+        @Param("now") LocalDateTime now
+    );
+
+    // Marks the conversation as changed for every member's next inbox sync; never moves the version back
+    @Modifying
+    @Query("UPDATE Conversation c SET c.changeVersion = :version WHERE c.id = :id " +
+           "AND (c.changeVersion IS NULL OR c.changeVersion < :version)")
+    int raiseChangeVersion(@Param("id") Long id, @Param("version") Long version);
+
+    // Conversations of the user changed after the given version, for themselves or for all members. Two
+    // branches joined by UNION rather than one OR, so each can use its own index (see add_inbox_sync.sql)
+    @Query(value = "SELECT c.* FROM conversations c WHERE c.id IN (" +
+                   "SELECT p.conversation_id FROM conversation_participants p " +
+                   "WHERE p.user_id = :userId AND p.change_version > :since " +
+                   "UNION " +
+                   "SELECT c2.id FROM conversations c2 JOIN conversation_participants p2 " +
+                   "ON p2.conversation_id = c2.id AND p2.user_id = :userId " +
+                   "WHERE c2.change_version > :since)",
+           nativeQuery = true)
+    List<Conversation> findChangedForUser(@Param("userId") Long userId, @Param("since") Long since);
 }
@@ -1,6 +1,7 @@
 package com.example.backend.repo;
 
 import com.example.backend.entity.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,7 +9,10 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
@@ -20,6 +24,70 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     @Query("SELECT m FROM Message m WHERE m.conversation.id = :conversationId ORDER BY m.createdAt DESC")
     List<Message> findLatestMessages(@Param("conversationId") Long conversationId, Pageable pageable);
 
-    @Query("SELECT COUNT(m) FROM Message m WHERE m.conversation.id = :conversationId AND m.isRead = false AND m.sender.id != :userId")
+    // One index probe per conversation on (conversation_id, id) instead of a scan of every message
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.id IN " +
+           "(SELECT (SELECT MAX(m2.id) FROM Message m2 WHERE m2.conversation.id = c.id) " +
+           "FROM Conversation c WHERE c.id IN :conversationIds)")
+    List<Message> findLatestMessagesByConversationIds(@Param("conversationIds") Collection<Long> conversationIds);
+
+    // Keyset pages over (conversation_id, created_at, id): no OFFSET and no COUNT, so cost is flat at any depth
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findNewest(@Param("conversationId") Long conversationId, Limit limit);
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "AND (m.createdAt, m.id) < (:createdAt, :id) ORDER BY m.createdAt DESC, m.id DESC")
+    List<Message> findBefore(
+        @Param("conversationId") Long conversationId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
+    );
+
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "AND (m.createdAt, m.id) > (:createdAt, :id) ORDER BY m.createdAt ASC, m.id ASC")
+    List<Message> findAfter(
+        @Param("conversationId") Long conversationId,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
+    );
+
+    // Resume after a reconnect: a range scan on the unique (conversation_id, seq) index
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.conversation.id = :conversationId " +
+           "AND m.seq > :afterSeq ORDER BY m.seq ASC")
+    List<Message> findAfterSeq(
+        @Param("conversationId") Long conversationId,
+        @Param("afterSeq") Long afterSeq,
+        Limit limit
+    );
+
+    // Probe of the partial unique (sender_id, client_message_id) index
+    @Query("SELECT m FROM Message m JOIN FETCH m.sender WHERE m.sender.id = :senderId " +
+           "AND m.clientMessageId = :clientMessageId")
+    Optional<Message> findBySenderIdAndClientMessageId(
+        @Param("senderId") Long senderId,
+        @Param("clientMessageId") String clientMessageId
+    );
+
+    @Query("SELECT m.createdAt FROM Message m WHERE m.id = :id AND m.conversation.id = :conversationId")
+    Optional<LocalDateTime> findCreatedAt(@Param("id") Long id, @Param("conversationId") Long conversationId);
+
+    boolean existsByIdAndConversationId(Long id, Long conversationId);
+
+    // Unread = messages from others above the participant's read watermark, a range count on (conversation_id, id)
+    @Query("SELECT COUNT(m) FROM Message m, ConversationParticipant p " +
+           "WHERE p.conversation.id = :conversationId AND p.user.id = :userId " +
+           "AND m.conversation.id = :conversationId AND m.sender.id != :userId " +
+           "AND m.id > COALESCE(p.lastReadMessageId, 0)")
     Long countUnreadMessages(@Param("conversationId") Long conversationId, @Param("userId") Long userId);
+
+    @Query("SELECT p.conversation.id, COUNT(m) FROM Message m, ConversationParticipant p " +
+           "WHERE p.user.id = :userId AND p.conversation.id IN :conversationIds " +
+           "AND m.conversation.id = p.conversation.id AND m.sender.id != :userId " +
+           "AND m.id > COALESCE(p.lastReadMessageId, 0) GROUP BY p.conversation.id")
+    List<Object[]> countUnreadMessagesByConversationIds(
+        @Param("conversationIds") Collection<Long> conversationIds,
+        @Param("userId") Long userId
+    );
 }
@@ -1,10 +1,49 @@
 package com.example.backend.repo;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import com.example.backend.entity.User;
+import jakarta.persistence.QueryHint;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByRole(String role);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Walks the lower(email) text_pattern_ops index in its own order (~<~) and stops at the limit
+    // (see database/add_user_search_indexes.sql)
+    @Query(value = "SELECT id, email, role FROM users " +
+                   "WHERE lower(email) LIKE :prefix AND id <> :excludeId " +
+                   "ORDER BY lower(email) USING ~<~ " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<UserSummary> searchByEmailPrefix(
+        @Param("prefix") String prefix,
+        @Param("excludeId") Long excludeId,
+        @Param("limit") int limit
+    );
+
+    // pg_trgm GIN index; unordered so the limit applies before every match is found and sorted.
+    // Prefix matches are left out, they come from searchByEmailPrefix
+    @Query(value = "SELECT id, email, role FROM users " +
+                   "WHERE lower(email) LIKE :pattern AND lower(email) NOT LIKE :prefix AND id <> :excludeId " +
+                   "LIMIT :limit", nativeQuery = true)
+    List<UserSummary> searchByEmailSubstring(
+        @Param("pattern") String pattern,
+        @Param("prefix") String prefix,
+        @Param("excludeId") Long excludeId,
+        @Param("limit") int limit
+    );
+
+    // Streamed in fetch-size chunks so the directory load never materialises every entity at once
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "5000"))
+    @Query("SELECT u.id AS id, u.email AS email, u.role AS role FROM User u")
+    Stream<UserSummary> streamAllSummaries();
 }
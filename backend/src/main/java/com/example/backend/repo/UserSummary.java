@@ -0,0 +1,10 @@
+package com.example.backend.repo;
+
+/**
+ * Id/email/role projection of a user, so lookups never load password hashes.
+ */
+public interface UserSummary {
+    Long getId();
+    String getEmail();
+    String getRole();
+}
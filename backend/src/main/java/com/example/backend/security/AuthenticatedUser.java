@@ -0,0 +1,49 @@
+package com.example.backend.security;
+
+import org.springframework.security.core.Authentication;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+/**
+ * Principal placed in the security context for authenticated HTTP and STOMP requests.
+ * Built from the JWT claims, so controllers get the user id without a users-table lookup.
+ * {@link #getName()} stays the email, which keeps Spring's /user destinations keyed as before.
+ */
+public final class AuthenticatedUser implements Principal, Serializable {
+
+    private final Long id;
+    private final String email;
+    private final String role;
+
+    public AuthenticatedUser(Long id, String email, String role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+
+    public static AuthenticatedUser from(Principal principal) {
+        if (principal instanceof AuthenticatedUser user) {
+            return user;
+        }
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        throw new RuntimeException("User not authenticated");
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -13,7 +13,6 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
-import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -29,40 +28,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
 
         final String authHeader = request.getHeader("Authorization");
-        final String jwt;
-        final String userEmail;
-        final String role;
-
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        jwt = authHeader.substring(7);
+        final VerifiedToken token;
         try {
-            userEmail = jwtUtil.extractEmail(jwt);
-            role = jwtUtil.extractRole(jwt);
+            token = jwtUtil.verify(authHeader.substring(7));
         } catch (Exception e) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(jwt, userEmail)) {
-                // Add "ROLE_" prefix because Spring Security expects it by default for hasRole()
-                String roleName = role.startsWith("ROLE_") ? role : "ROLE_" + role;
-                
-                SimpleGrantedAuthority authority = new SimpleGrantedAuthority(roleName);
-                
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userEmail,
-                        null,
-                        Collections.singletonList(authority)
-                );
-                
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+        // Tokens issued before the user id claim existed are treated as anonymous, forcing a fresh login
+        if (token.getEmail() != null && token.getUserId() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Add "ROLE_" prefix because Spring Security expects it by default for hasRole()
+            String role = token.getRole();
+            String roleName = role.startsWith("ROLE_") ? role : "ROLE_" + role;
+
+            SimpleGrantedAuthority authority = new SimpleGrantedAuthority(roleName);
+
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    token.toPrincipal(),
+                    null,
+                    Collections.singletonList(authority)
+            );
+
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
         filterChain.doFilter(request, response);
     }
@@ -1,6 +1,7 @@
 package com.example.backend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -12,57 +13,75 @@ import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
-
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Long expiration;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final VerifiedTokenCache verifiedTokens;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") Long expiration,
+                   @Value("${jwt.cache-size:10000}") int cacheSize) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = new VerifiedTokenCache(cacheSize);
+    }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Verifies the token signature and expiry once and returns its claims. Tokens verified
+     * earlier are served from the cache until they expire, so steady-state authentication is
+     * a digest plus a hash lookup. Throws a {@link io.jsonwebtoken.JwtException} for invalid
+     * or expired tokens.
+     */
+    public VerifiedToken verify(String token) {
+        long now = System.currentTimeMillis();
+        String key = VerifiedTokenCache.digest(token);
+        VerifiedToken cached = verifiedTokens.get(key, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        VerifiedToken verified = new VerifiedToken(
+                claims.get("uid", Long.class),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("privilegeLevel", Integer.class),
+                claims.getExpiration().getTime()
+        );
+        verifiedTokens.put(key, verified, now);
+        return verified;
     }
 
     public String extractEmail(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).getEmail();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+        return new Date(verify(token).getExpiresAtMillis());
     }
 
-    public Integer extractPrivilegeLevel(String token) {
-        return extractClaim(token, claims -> claims.get("privilegeLevel", Integer.class));
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public Long extractUserId(String token) {
+        return verify(token).getUserId();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public String extractRole(String token) {
+        return verify(token).getRole();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Integer extractPrivilegeLevel(String token) {
+        return verify(token).getPrivilegeLevel();
     }
 
-    public String generateToken(String email, String role, int privilegeLevel) {
+    public String generateToken(Long userId, String email, String role, int privilegeLevel) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put("uid", userId);
         claims.put("role", role);
         claims.put("privilegeLevel", privilegeLevel);
         return createToken(claims, email);
@@ -74,12 +93,12 @@ public class JwtUtil {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, String email) {
-        final String extractedEmail = extractEmail(token);
-        return (extractedEmail.equals(email) && !isTokenExpired(token));
+        VerifiedToken verified = verify(token);
+        return verified.getEmail().equals(email) && !verified.isExpired(System.currentTimeMillis());
     }
 }
@@ -0,0 +1,35 @@
+package com.example.backend.security;
+
+/**
+ * Immutable result of one successful signature check of a JWT.
+ */
+public final class VerifiedToken {
+
+    private final Long userId;
+    private final String email;
+    private final String role;
+    private final Integer privilegeLevel;
+    private final long expiresAtMillis;
+
+    public VerifiedToken(Long userId, String email, String role, Integer privilegeLevel, long expiresAtMillis) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+        this.privilegeLevel = privilegeLevel;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+    public Integer getPrivilegeLevel() { return privilegeLevel; }
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+
+    public AuthenticatedUser toPrincipal() {
+        return new AuthenticatedUser(userId, email, role);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified, keyed by a SHA-256 digest
+ * of the raw token so the bearer strings themselves are not retained. Entries are dropped once
+ * the token expires; when the cache is full, expired entries are purged first and then
+ * arbitrary entries are evicted down to 90% capacity.
+ */
+class VerifiedTokenCache {
+
+    private final int maxSize;
+    private final Map<String, VerifiedToken> entries;
+
+    VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new ConcurrentHashMap<>(Math.max(16, maxSize));
+    }
+
+    VerifiedToken get(String key, long nowMillis) {
+        VerifiedToken token = entries.get(key);
+        if (token == null) {
+            return null;
+        }
+        if (token.isExpired(nowMillis)) {
+            entries.remove(key, token);
+            return null;
+        }
+        return token;
+    }
+
+    void put(String key, VerifiedToken token, long nowMillis) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict(nowMillis);
+        }
+        entries.put(key, token);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void evict(long nowMillis) {
+        entries.values().removeIf(token -> token.isExpired(nowMillis));
+        int target = maxSize - maxSize / 10;
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
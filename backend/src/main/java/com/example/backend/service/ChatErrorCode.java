@@ -0,0 +1,14 @@
+package com.example.backend.service;
+
+/**
+ * Machine-readable reasons a chat operation failed, sent to clients in send acknowledgements.
+ */
+public enum ChatErrorCode {
+    INVALID_REQUEST,
+    CONVERSATION_NOT_FOUND,
+    SENDER_NOT_FOUND,
+    NOT_A_PARTICIPANT,
+    // The conversation's send queue is full; retry later with the same client message id
+    OVERLOADED,
+    INTERNAL_ERROR
+}
@@ -0,0 +1,19 @@
+package com.example.backend.service;
+
+/**
+ * A RuntimeException that carries a {@link ChatErrorCode}, so the STOMP send path can report a typed
+ * failure. Callers that catch RuntimeException see no difference.
+ */
+public class ChatException extends RuntimeException {
+
+    private final ChatErrorCode code;
+
+    public ChatException(ChatErrorCode code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public ChatErrorCode getCode() {
+        return code;
+    }
+}
@@ -3,14 +3,30 @@ package com.example.backend.service;
 import com.example.backend.dto.*;
 import com.example.backend.entity.*;
 import com.example.backend.repo.*;
+import com.example.backend.util.TimeOrderedIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,100 +42,395 @@ public class ChatService {
     private MessageRepository messageRepository;
 
     @Autowired
-    private MessageReadReceiptRepository readReceiptRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private MessageBatchWriter messageBatchWriter;
+
+    @Autowired
+    private ConversationActivityTracker activityTracker;
+
+    @Autowired
+    private RecentMessageCache recentMessageCache;
+
+    @Autowired
+    private RecentSendCache recentSends;
+
+    @Autowired
+    private TimeOrderedIdGenerator idGenerator;
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
 
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final int MAX_RESUME_CONVERSATIONS = 1000;
+
+    private static final int MAX_CLIENT_MESSAGE_ID_LENGTH = 64;
+
+    // Sync re-reads this much history before the client's token, covering stamps whose transaction
+    // was still open when the token was issued
+    @Value("${chat.inbox-sync.overlap-ms:5000}")
+    private long syncOverlapMillis;
+
+    // Tombstones are kept this long; older sync tokens get a full inbox. 0 keeps them forever
+    @Value("${chat.inbox-sync.tombstone-retention-ms:2592000000}")
+    private long tombstoneRetentionMillis;
+
+    /**
+     * Returns the direct conversation between the two users, creating it if needed. Concurrent calls
+     * for the same pair converge on one conversation through the unique (low, high) pair key; only the
+     * call that inserted it gets a DTO marked {@link ConversationDTO#isCreated() created}.
+     */
     @Transactional
     public ConversationDTO createDirectConversation(Long user1Id, Long user2Id) {
-        // Check if conversation already exists
-        var existing = conversationRepository.findDirectConversation(user1Id, user2Id);
+        Long lowUserId = Math.min(user1Id, user2Id);
+        Long highUserId = Math.max(user1Id, user2Id);
+
+        var existing = conversationRepository.findDirectConversation(lowUserId, highUserId);
         if (existing.isPresent()) {
             return convertToDTO(existing.get(), user1Id);
         }
 
-        // Create new conversation
-        Conversation conversation = new Conversation(null, false);
-        conversation = conversationRepository.save(conversation);
+        Set<Long> userIds = new LinkedHashSet<>(List.of(user1Id, user2Id));
+        if (userRepository.findExistingIds(userIds).size() != userIds.size()) {
+            throw new RuntimeException("User not found");
+        }
 
-        User user1 = userRepository.findById(user1Id)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-        User user2 = userRepository.findById(user2Id)
-            .orElseThrow(() -> new RuntimeException("User not found"));
+        // Blocks on a concurrent insert of the same pair until it commits, then does nothing
+        Long conversationId = idGenerator.nextId();
+        int inserted = conversationRepository.insertDirectConversationIfAbsent(
+            conversationId, lowUserId, highUserId, LocalDateTime.now());
+        if (inserted == 0) {
+            Conversation winner = conversationRepository.findDirectConversation(lowUserId, highUserId)
+                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+            return convertToDTO(winner, user1Id);
+        }
 
-        // Add participants
-        ConversationParticipant p1 = new ConversationParticipant(conversation, user1, false);
-        ConversationParticipant p2 = new ConversationParticipant(conversation, user2, false);
-        participantRepository.save(p1);
-        participantRepository.save(p2);
+        Conversation conversation = conversationRepository.getReferenceById(conversationId);
+        List<ConversationParticipant> participants = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            participants.add(newParticipant(conversation, userRepository.getReferenceById(userId), false));
+        }
+        participantRepository.saveAll(participants);
 
-        return convertToDTO(conversation, user1Id);
+        ConversationDTO created = convertToDTO(conversationRepository.findById(conversationId)
+            .orElseThrow(() -> new RuntimeException("Conversation not found")), user1Id);
+        created.setCreated(true);
+        return created;
     }
 
     @Transactional
     public ConversationDTO createGroupConversation(String name, List<Long> participantIds, Long creatorId) {
         Conversation conversation = new Conversation(name, true);
+        conversation.setChangeVersion(idGenerator.nextId());
         conversation = conversationRepository.save(conversation);
 
         // Add creator as admin
         User creator = userRepository.findById(creatorId)
             .orElseThrow(() -> new RuntimeException("Creator not found"));
-        ConversationParticipant creatorParticipant = new ConversationParticipant(conversation, creator, true);
-        participantRepository.save(creatorParticipant);
+        List<ConversationParticipant> participants = new ArrayList<>();
+        participants.add(newParticipant(conversation, creator, true));
 
         // Add other participants
-        for (Long userId : participantIds) {
-            if (!userId.equals(creatorId)) {
-                User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-                ConversationParticipant participant = new ConversationParticipant(conversation, user, false);
-                participantRepository.save(participant);
-            }
-        }
+        Set<Long> memberIds = new LinkedHashSet<>(participantIds);
+        memberIds.remove(creatorId);
+        participants.addAll(buildParticipants(conversation, memberIds));
+        participantRepository.saveAll(participants);
 
         return convertToDTO(conversation, creatorId);
     }
 
     public List<ConversationDTO> getUserConversations(Long userId) {
-        List<Conversation> conversations = conversationRepository.findByUserId(userId);
-        return conversations.stream()
-            .map(conv -> convertToDTO(conv, userId))
-            .collect(Collectors.toList());
+        List<Conversation> conversations = new ArrayList<>(conversationRepository.findByUserId(userId));
+        // The query orders by the flushed activity; re-sort with activity not yet written back
+        conversations.sort(Comparator.comparing(this::lastActivityAt).reversed());
+        return convertToDTOs(conversations, userId);
     }
 
+    /**
+     * Inbox delta since a previous sync: conversations whose metadata, participants, last message or
+     * unread count changed after {@code since}, and ids of conversations the user has left. Without a
+     * token the whole inbox is returned. Nothing changed costs two indexed queries returning no rows.
+     *
+     * Versions are time-ordered stamps (see TimeOrderedIdGenerator), so the window is widened by
+     * chat.inbox-sync.overlap-ms and a conversation may be sent again; clients replace by id. New
+     * messages are stamped when ConversationActivityTracker flushes, up to one interval later. A token
+     * older than chat.inbox-sync.tombstone-retention-ms may predate purged tombstones, so it gets the
+     * whole inbox too.
+     */
+    @Transactional(readOnly = true)
+    public ConversationSyncDTO syncConversations(Long userId, Long since) {
+        long version = idGenerator.nextId();
+        if (since == null || since <= 0 || tombstonesPurgedAfter(since)) {
+            return new ConversationSyncDTO(version, true, getUserConversations(userId), new ArrayList<>());
+        }
+
+        long from = TimeOrderedIdGenerator.lowestIdAt(TimeOrderedIdGenerator.timestampMillis(since) - syncOverlapMillis);
+        List<Conversation> changed = conversationRepository.findChangedForUser(userId, from);
+        List<Long> removed = participantRepository.findRemovedConversationIds(userId, from);
+        return new ConversationSyncDTO(version, false, convertToDTOs(changed, userId), removed);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.inbox-sync.tombstone-purge-ms:3600000}")
     @Transactional
-    public ChatMessageDTO sendMessage(Long conversationId, Long senderId, String content, String messageType) {
+    public void purgeTombstones() {
+        if (tombstoneRetentionMillis <= 0) {
+            return;
+        }
+        participantRepository.deleteTombstonesBefore(
+            TimeOrderedIdGenerator.lowestIdAt(System.currentTimeMillis() - tombstoneRetentionMillis));
+    }
+
+    private boolean tombstonesPurgedAfter(long since) {
+        return tombstoneRetentionMillis > 0
+            && TimeOrderedIdGenerator.timestampMillis(since) < System.currentTimeMillis() - tombstoneRetentionMillis;
+    }
+
+    /**
+     * Validates and persists a message. With write-behind batching enabled the returned future
+     * completes once the batch holding the message has committed; otherwise it is already complete.
+     *
+     * A {@code clientMessageId} makes the send idempotent per sender: a retry with the same id returns
+     * the original message instead of inserting a second one. Retries within the dedup window are
+     * answered from memory (see RecentSendCache); older ones from the unique (sender_id, client_message_id) index.
+     */
+    public CompletableFuture<ChatMessageDTO> sendMessageAsync(Long conversationId, Long senderId,
+                                                             String content, String messageType,
+                                                             String clientMessageId) {
+        if (clientMessageId == null) {
+            return persistMessage(conversationId, senderId, content, messageType, null);
+        }
+        if (clientMessageId.isBlank() || clientMessageId.length() > MAX_CLIENT_MESSAGE_ID_LENGTH) {
+            throw new ChatException(ChatErrorCode.INVALID_REQUEST,
+                "Client message id must be 1 to " + MAX_CLIENT_MESSAGE_ID_LENGTH + " characters");
+        }
+
+        CompletableFuture<ChatMessageDTO> send = new CompletableFuture<>();
+        CompletableFuture<ChatMessageDTO> original = recentSends.claim(senderId, clientMessageId, send);
+        if (original != null) {
+            // The first send broadcasts its own result; this caller only reports it
+            return original.thenApply(ChatService::asDuplicate);
+        }
+        try {
+            // Older retries are caught by the unique index on insert (see duplicateOf), not by a probe per send
+            CompletableFuture<ChatMessageDTO> written =
+                persistMessage(conversationId, senderId, content, messageType, clientMessageId);
+            written.whenComplete((dto, error) -> {
+                if (error != null) {
+                    recentSends.release(senderId, clientMessageId, send);
+                    send.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                } else {
+                    send.complete(dto);
+                }
+            });
+        } catch (RuntimeException e) {
+            recentSends.release(senderId, clientMessageId, send);
+            throw e;
+        }
+        return send;
+    }
+
+    /**
+     * Result of an earlier send with this client message id that is still in the dedup window, or null.
+     */
+    public CompletableFuture<ChatMessageDTO> findRecentSend(Long senderId, String clientMessageId) {
+        return clientMessageId == null ? null : recentSends.find(senderId, clientMessageId);
+    }
+
+    private CompletableFuture<ChatMessageDTO> persistMessage(Long conversationId, Long senderId, String content,
+                                                             String messageType, String clientMessageId) {
+        if (conversationId == null) {
+            throw new ChatException(ChatErrorCode.INVALID_REQUEST, "Conversation id is required");
+        }
         Conversation conversation = conversationRepository.findById(conversationId)
-            .orElseThrow(() -> new RuntimeException("Conversation not found"));
+            .orElseThrow(() -> new ChatException(ChatErrorCode.CONVERSATION_NOT_FOUND, "Conversation not found"));
         
         User sender = userRepository.findById(senderId)
-            .orElseThrow(() -> new RuntimeException("Sender not found"));
+            .orElseThrow(() -> new ChatException(ChatErrorCode.SENDER_NOT_FOUND, "Sender not found"));
 
         // Verify sender is participant
         participantRepository.findByConversationIdAndUserId(conversationId, senderId)
-            .orElseThrow(() -> new RuntimeException("User is not a participant"));
+            .orElseThrow(() -> new ChatException(ChatErrorCode.NOT_A_PARTICIPANT, "User is not a participant"));
 
         Message message = new Message(conversation, sender, content);
         message.setMessageType(messageType != null ? messageType : "TEXT");
-        message = messageRepository.save(message);
+        message.setClientMessageId(clientMessageId);
+
+        if (messageBatchWriter.isEnabled()) {
+            return messageBatchWriter.submit(message)
+                .thenApply(this::onMessagePersisted)
+                .exceptionally(error -> duplicateOf(senderId, clientMessageId, error));
+        }
+        try {
+            return CompletableFuture.completedFuture(onMessagePersisted(messageBatchWriter.write(message)));
+        } catch (DuplicateKeyException e) {
+            return CompletableFuture.completedFuture(duplicateOf(senderId, clientMessageId, e));
+        }
+    }
+
+    /**
+     * The stored message when a write lost a race on the client message id (typically a retry
+     * handled concurrently by another node); otherwise rethrows the write's failure.
+     */
+    private ChatMessageDTO duplicateOf(Long senderId, String clientMessageId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (clientMessageId != null && cause instanceof DuplicateKeyException) {
+            var stored = messageRepository.findBySenderIdAndClientMessageId(senderId, clientMessageId);
+            if (stored.isPresent()) {
+                ChatMessageDTO dto = convertMessageToDTO(stored.get());
+                dto.setDuplicate(true);
+                return dto;
+            }
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        throw new CompletionException(cause);
+    }
 
-        return convertMessageToDTO(message);
+    // Copy, so the flag never leaks into the original send's result
+    private static ChatMessageDTO asDuplicate(ChatMessageDTO original) {
+        ChatMessageDTO copy = new ChatMessageDTO(original.getId(), original.getConversationId(), original.getSenderId(),
+            original.getSenderEmail(), original.getContent(), original.getMessageType(), original.getFileUrl(),
+            original.getFileName(), original.getFileType(), original.getFileSize(), original.getThumbnailUrl(),
+            original.getCreatedAt(), original.getIsRead());
+        copy.setSeq(original.getSeq());
+        copy.setClientMessageId(original.getClientMessageId());
+        copy.setDuplicate(true);
+        return copy;
     }
 
-    public List<ChatMessageDTO> getMessages(Long conversationId, Long userId, int page, int size) {
+    /**
+     * Single hook for every committed message, whichever path wrote it: records conversation
+     * activity, adds the message to the recent-message cache and returns the DTO to broadcast.
+     */
+    public ChatMessageDTO onMessagePersisted(Message message) {
+        activityTracker.recordMessage(message.getConversation().getId(), message.getId(), message.getCreatedAt());
+        ChatMessageDTO dto = convertMessageToDTO(message);
+        recentMessageCache.append(dto);
+        return dto;
+    }
+
+    /**
+     * Returns a slice of messages, newest first. With {@code beforeId} the slice holds the messages
+     * older than that message, with {@code afterId} the ones newer than it; with neither it holds the
+     * latest messages. A slice shorter than {@code size} means there is nothing further in that direction.
+     */
+    public List<ChatMessageDTO> getMessages(Long conversationId, Long userId, Long beforeId, Long afterId,
+                                            int page, int size) {
         // Verify user is participant
         participantRepository.findByConversationIdAndUserId(conversationId, userId)
             .orElseThrow(() -> new RuntimeException("User is not a participant"));
 
-        var messages = messageRepository.findByConversationIdOrderByCreatedAtDesc(
-            conversationId, PageRequest.of(page, size));
-        
-        return messages.getContent().stream()
+        Limit limit = Limit.of(Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        List<Message> messages;
+        if (beforeId != null) {
+            LocalDateTime cursor = messageRepository.findCreatedAt(beforeId, conversationId)
+                .orElseThrow(() -> new RuntimeException("Message not found in conversation"));
+            messages = messageRepository.findBefore(conversationId, cursor, beforeId, limit);
+        } else if (afterId != null) {
+            LocalDateTime cursor = messageRepository.findCreatedAt(afterId, conversationId)
+                .orElseThrow(() -> new RuntimeException("Message not found in conversation"));
+            messages = new ArrayList<>(messageRepository.findAfter(conversationId, cursor, afterId, limit));
+            Collections.reverse(messages);
+        } else if (page > 0) {
+            // Legacy offset paging, kept for old clients; no COUNT query is issued
+            messages = messageRepository.findLatestMessages(conversationId, PageRequest.of(page, limit.max()));
+        } else {
+            return getNewestMessages(conversationId, limit.max());
+        }
+
+        return messages.stream()
+            .map(this::convertMessageToDTO)
+            .collect(Collectors.toList());
+    }
+
+    private List<ChatMessageDTO> getNewestMessages(Long conversationId, int size) {
+        List<ChatMessageDTO> cached = recentMessageCache.getNewest(conversationId, size);
+        if (cached != null) {
+            return cached;
+        }
+        if (!recentMessageCache.isEnabled() || size > recentMessageCache.getCapacity()) {
+            return messageRepository.findNewest(conversationId, Limit.of(size)).stream()
+                .map(this::convertMessageToDTO)
+                .collect(Collectors.toList());
+        }
+
+        // Load a full buffer's worth so the following first pages are served from memory
+        int capacity = recentMessageCache.getCapacity();
+        List<ChatMessageDTO> newest = messageRepository.findNewest(conversationId, Limit.of(capacity)).stream()
             .map(this::convertMessageToDTO)
             .collect(Collectors.toList());
+        recentMessageCache.prime(conversationId, newest, newest.size() < capacity);
+        return newest.size() > size ? new ArrayList<>(newest.subList(0, size)) : newest;
+    }
+
+    /**
+     * Messages missed while disconnected: for each conversation in {@code afterSeq} (id -> highest seq
+     * the client has applied), the messages with a higher seq, oldest first, at most MAX_PAGE_SIZE each.
+     * Conversations with nothing new, or that the user is not in, are left out. A full list means more
+     * remain and the call should be repeated from its last seq.
+     *
+     * One query checks membership and reads every conversation's last seq, so up-to-date conversations
+     * cost nothing further; the rest are served from the recent-message cache when it reaches back to
+     * the cursor and from the (conversation_id, seq) index otherwise. Clients should subscribe before
+     * resuming and drop duplicates by seq.
+     */
+    public Map<Long, List<ChatMessageDTO>> resumeMessages(Long userId, Map<Long, Long> afterSeq) {
+        Map<Long, List<ChatMessageDTO>> missed = new LinkedHashMap<>();
+        if (afterSeq == null || afterSeq.isEmpty()) {
+            return missed;
+        }
+        if (afterSeq.size() > MAX_RESUME_CONVERSATIONS) {
+            throw new RuntimeException("Too many conversations to resume");
+        }
+
+        for (Object[] row : participantRepository.findLastMessageSeqsForMember(userId, afterSeq.keySet())) {
+            Long conversationId = (Long) row[0];
+            // NULL on rows created before the column had a default: no message has a seq yet
+            long lastSeq = row[1] != null ? (Long) row[1] : 0L;
+            Long requested = afterSeq.get(conversationId);
+            long cursor = requested != null ? requested : 0L;
+            if (lastSeq <= cursor) {
+                continue;
+            }
+            List<ChatMessageDTO> messages = recentMessageCache.getAfterSeq(conversationId, cursor, MAX_PAGE_SIZE);
+            // A short cache answer must reach lastSeq: a message persisted but not yet appended (or written
+            // by another node) would otherwise be skipped by the client's cursor for good
+            if (messages != null && messages.size() < MAX_PAGE_SIZE
+                    && (messages.isEmpty() || messages.get(messages.size() - 1).getSeq() < lastSeq)) {
+                messages = null;
+            }
+            if (messages == null) {
+                messages = messageRepository.findAfterSeq(conversationId, cursor, Limit.of(MAX_PAGE_SIZE)).stream()
+                    .map(this::convertMessageToDTO)
+                    .collect(Collectors.toList());
+            }
+            if (!messages.isEmpty()) {
+                missed.put(conversationId, messages);
+            }
+        }
+        return missed;
+    }
+
+    @Transactional
+    public ReadCursorDTO markAsRead(Long conversationId, Long userId, Long messageId) {
+        if (!messageRepository.existsByIdAndConversationId(messageId, conversationId)) {
+            throw new RuntimeException("Message not found in conversation");
+        }
+
+        ConversationParticipant participant = participantRepository.findByConversationIdAndUserId(conversationId, userId)
+            .orElseThrow(() -> new RuntimeException("User is not a participant"));
+
+        Long lastRead = participant.getLastReadMessageId();
+        if (lastRead == null || lastRead < messageId) {
+            participantRepository.advanceLastReadMessageId(conversationId, userId, messageId,
+                idGenerator.nextId());
+            lastRead = messageId;
+        }
+
+        return new ReadCursorDTO(conversationId, userId, lastRead);
     }
 
     @Transactional
@@ -147,8 +458,44 @@ public class ChatService {
             throw new RuntimeException("User is already a participant");
         }
 
-        ConversationParticipant participant = new ConversationParticipant(conversation, user, false);
+        ConversationParticipant participant = newParticipant(conversation, user, false);
         participantRepository.save(participant);
+        markChanged(conversationId);
+    }
+
+    /**
+     * Adds many users to a group at once. Ids are validated with one query, existing members are
+     * detected with one query and skipped, and the new rows are inserted as JDBC batches.
+     * Returns the ids of the users that were actually added.
+     */
+    @Transactional
+    public List<Long> addParticipants(Long conversationId, List<Long> userIds, Long adminId) {
+        Conversation conversation = conversationRepository.findById(conversationId)
+            .orElseThrow(() -> new RuntimeException("Conversation not found"));
+
+        if (!conversation.getIsGroup()) {
+            throw new RuntimeException("Cannot add participants to direct conversation");
+        }
+
+        // Verify admin permissions
+        ConversationParticipant admin = participantRepository.findByConversationIdAndUserId(conversationId, adminId)
+            .orElseThrow(() -> new RuntimeException("Admin not found"));
+
+        if (!admin.getIsAdmin()) {
+            throw new RuntimeException("Only admins can add participants");
+        }
+
+        if (userIds == null || userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> newMemberIds = new LinkedHashSet<>(userIds);
+        newMemberIds.removeAll(participantRepository.findUserIdsByConversationIdAndUserIdIn(conversationId, newMemberIds));
+
+        participantRepository.saveAll(buildParticipants(conversation, newMemberIds));
+        if (!newMemberIds.isEmpty()) {
+            markChanged(conversationId);
+        }
+        return new ArrayList<>(newMemberIds);
     }
 
     @Transactional
@@ -169,6 +516,8 @@ public class ChatService {
         }
 
         participantRepository.deleteByConversationIdAndUserId(conversationId, userId);
+        long version = markChanged(conversationId);
+        participantRepository.insertTombstone(userId, conversationId, version);
     }
 
     @Transactional
@@ -193,43 +542,116 @@ public class ChatService {
         
         participant.setIsAdmin(true);
         participantRepository.save(participant);
+        markChanged(conversationId);
+    }
+
+    /**
+     * Stamps a change every member should pick up on their next inbox sync. Returns the stamp.
+     */
+    private long markChanged(Long conversationId) {
+        long version = idGenerator.nextId();
+        conversationRepository.raiseChangeVersion(conversationId, version);
+        return version;
+    }
+
+    private List<ConversationParticipant> buildParticipants(Conversation conversation, Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> existing = new HashSet<>(userRepository.findExistingIds(userIds));
+        List<ConversationParticipant> participants = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            if (!existing.contains(userId)) {
+                throw new RuntimeException("User not found: " + userId);
+            }
+            // Reference only: the row is known to exist, so no per-user SELECT is needed
+            participants.add(newParticipant(conversation, userRepository.getReferenceById(userId), false));
+        }
+        return participants;
+    }
+
+    private ConversationParticipant newParticipant(Conversation conversation, User user, boolean isAdmin) {
+        ConversationParticipant participant = new ConversationParticipant(conversation, user, isAdmin);
+        participant.setChangeVersion(idGenerator.nextId());
+        return participant;
     }
 
     private ConversationDTO convertToDTO(Conversation conversation, Long currentUserId) {
-        ConversationDTO dto = new ConversationDTO();
-        dto.setId(conversation.getId());
-        dto.setName(conversation.getName());
-        dto.setIsGroup(conversation.getIsGroup());
-        dto.setCreatedAt(conversation.getCreatedAt().format(formatter));
-        dto.setUpdatedAt(conversation.getUpdatedAt().format(formatter));
+        return convertToDTOs(List.of(conversation), currentUserId).get(0);
+    }
+
+    /**
+     * Builds the inbox projection for a set of conversations with a constant number of
+     * queries: one for participants (with users), one for the latest message of each
+     * conversation (with senders) and one grouped unread count.
+     */
+    private List<ConversationDTO> convertToDTOs(List<Conversation> conversations, Long currentUserId) {
+        if (conversations.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Long> conversationIds = conversations.stream()
+            .map(Conversation::getId)
+            .collect(Collectors.toList());
 
         // Get participants
-        List<ConversationParticipant> participants = participantRepository.findByConversationId(conversation.getId());
-        dto.setParticipants(participants.stream()
-            .map(p -> new ParticipantDTO(
-                p.getId(),
-                p.getUser().getId(),
-                p.getUser().getEmail(),
-                p.getIsAdmin(),
-                p.getJoinedAt().format(formatter)
-            ))
-            .collect(Collectors.toList()));
-
-        // Get last message
-        List<Message> lastMessages = messageRepository.findLatestMessages(conversation.getId(), PageRequest.of(0, 1));
-        if (!lastMessages.isEmpty()) {
-            dto.setLastMessage(convertMessageToDTO(lastMessages.get(0)));
-        }
-
-        // Get unread count
-        Long unreadCount = messageRepository.countUnreadMessages(conversation.getId(), currentUserId);
-        dto.setUnreadCount(unreadCount);
+        Map<Long, List<ParticipantDTO>> participantsByConversation = new HashMap<>();
+        for (ConversationParticipant p : participantRepository.findWithUserByConversationIdIn(conversationIds)) {
+            participantsByConversation
+                .computeIfAbsent(p.getConversation().getId(), id -> new ArrayList<>())
+                .add(new ParticipantDTO(
+                    p.getId(),
+                    p.getUser().getId(),
+                    p.getUser().getEmail(),
+                    p.getIsAdmin(),
+                    p.getJoinedAt().format(formatter),
+                    p.getLastReadMessageId()
+                ));
+        }
 
-        return dto;
+        // Get last messages
+        Map<Long, ChatMessageDTO> lastMessageByConversation = new HashMap<>();
+        for (Message message : messageRepository.findLatestMessagesByConversationIds(conversationIds)) {
+            lastMessageByConversation.put(message.getConversation().getId(), convertMessageToDTO(message));
+        }
+
+        // Get unread counts
+        Map<Long, Long> unreadByConversation = new HashMap<>();
+        for (Object[] row : messageRepository.countUnreadMessagesByConversationIds(conversationIds, currentUserId)) {
+            unreadByConversation.put((Long) row[0], (Long) row[1]);
+        }
+
+        List<ConversationDTO> dtos = new ArrayList<>(conversations.size());
+        for (Conversation conversation : conversations) {
+            ConversationDTO dto = new ConversationDTO();
+            dto.setId(conversation.getId());
+            dto.setName(conversation.getName());
+            dto.setIsGroup(conversation.getIsGroup());
+            dto.setCreatedAt(conversation.getCreatedAt().format(formatter));
+            dto.setUpdatedAt(lastActivityAt(conversation).format(formatter));
+            dto.setParticipants(participantsByConversation.getOrDefault(conversation.getId(), new ArrayList<>()));
+            dto.setLastMessage(lastMessageByConversation.get(conversation.getId()));
+            dto.setUnreadCount(unreadByConversation.getOrDefault(conversation.getId(), 0L));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    private LocalDateTime lastActivityAt(Conversation conversation) {
+        LocalDateTime latest = conversation.getUpdatedAt();
+        if (conversation.getLastActivityAt() != null && conversation.getLastActivityAt().isAfter(latest)) {
+            latest = conversation.getLastActivityAt();
+        }
+        ConversationActivityTracker.Activity pending = activityTracker.pending(conversation.getId());
+        if (pending != null && pending.getLastActivityAt().isAfter(latest)) {
+            latest = pending.getLastActivityAt();
+        }
+        return latest;
     }
 
     private ChatMessageDTO convertMessageToDTO(Message message) {
-        return new ChatMessageDTO(
+        ChatMessageDTO dto = new ChatMessageDTO(
             message.getId(),
             message.getConversation().getId(),
             message.getSender().getId(),
@@ -244,5 +666,8 @@ public class ChatService {
             message.getCreatedAt().format(formatter),
             message.getIsRead()
         );
+        dto.setSeq(message.getSeq());
+        dto.setClientMessageId(message.getClientMessageId());
+        return dto;
     }
 }
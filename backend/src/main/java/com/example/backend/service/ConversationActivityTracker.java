@@ -0,0 +1,146 @@
+package com.example.backend.service;
+
+import com.example.backend.util.TimeOrderedIdGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps conversation metadata (last message id, last activity, message count) off the message insert path.
+ * The insert still advances {@code last_message_seq} on the same row (see {@link MessageBatchWriter}); only
+ * these activity columns are deferred.
+ *
+ * Each persisted message only updates an in-memory per-conversation aggregate; a scheduled flush folds
+ * all aggregates accumulated since the previous flush into one batched UPDATE, so a busy group costs one
+ * row update per flush interval instead of one per message. Until a flush lands, {@link #pending} lets the
+ * inbox overlay the newer values so ordering stays correct on this node; other nodes see the change at
+ * most one interval later.
+ */
+@Component
+public class ConversationActivityTracker {
+
+    private static final String UPDATE_SQL =
+        "UPDATE conversations SET " +
+        "last_message_id = GREATEST(COALESCE(last_message_id, 0), ?), " +
+        "last_activity_at = GREATEST(COALESCE(last_activity_at, created_at), ?), " +
+        "message_count = COALESCE(message_count, 0) + ?, " +
+        "change_version = GREATEST(COALESCE(change_version, 0), ?) " +
+        "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TimeOrderedIdGenerator idGenerator;
+    private final Map<Long, Activity> pending = new ConcurrentHashMap<>();
+    // Aggregates taken by the flush in progress, still visible to readers until the UPDATE commits
+    private volatile Map<Long, Activity> inFlight = Map.of();
+
+    public ConversationActivityTracker(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                       TimeOrderedIdGenerator idGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.idGenerator = idGenerator;
+    }
+
+    public void recordMessage(Long conversationId, Long messageId, LocalDateTime createdAt) {
+        pending.merge(conversationId, new Activity(messageId, createdAt, 1), Activity::combine);
+    }
+
+    /**
+     * Activity recorded on this node that has not been flushed yet, or null.
+     */
+    public Activity pending(Long conversationId) {
+        Activity queued = pending.get(conversationId);
+        Activity flushing = inFlight.get(conversationId);
+        if (queued == null || flushing == null) {
+            return queued != null ? queued : flushing;
+        }
+        return Activity.combine(flushing, queued);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.conversation-activity.flush-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Activity> drained = new ConcurrentHashMap<>();
+        inFlight = drained;
+        for (Long conversationId : new ArrayList<>(pending.keySet())) {
+            Activity activity = pending.remove(conversationId);
+            if (activity != null) {
+                drained.put(conversationId, activity);
+            }
+        }
+
+        // Stable row order keeps concurrent flushes from several nodes deadlock-free
+        List<Map.Entry<Long, Activity>> rows = new ArrayList<>(drained.entrySet());
+        rows.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+        try {
+            // One inbox sync stamp per flush marks every conversation that received messages. All rows
+            // commit together: a partial commit followed by a retry would count those messages twice
+            long changeVersion = idGenerator.nextId();
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, toArgs(rows, changeVersion)));
+        } catch (RuntimeException e) {
+            // Nothing was written; put the aggregates back so the next flush retries them
+            drained.forEach((id, activity) -> pending.merge(id, activity, Activity::combine));
+            System.err.println("Conversation activity flush failed: " + e.getMessage());
+        } finally {
+            inFlight = Map.of();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private static List<Object[]> toArgs(Collection<Map.Entry<Long, Activity>> rows, long changeVersion) {
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Map.Entry<Long, Activity> row : rows) {
+            Activity activity = row.getValue();
+            args.add(new Object[]{
+                activity.getLastMessageId(),
+                Timestamp.valueOf(activity.getLastActivityAt()),
+                activity.getMessageCount(),
+                changeVersion,
+                row.getKey()
+            });
+        }
+        return args;
+    }
+
+    public static final class Activity {
+        private final Long lastMessageId;
+        private final LocalDateTime lastActivityAt;
+        private final long messageCount;
+
+        Activity(Long lastMessageId, LocalDateTime lastActivityAt, long messageCount) {
+            this.lastMessageId = lastMessageId;
+            this.lastActivityAt = lastActivityAt;
+            this.messageCount = messageCount;
+        }
+
+        static Activity combine(Activity a, Activity b) {
+            return new Activity(
+                Math.max(a.lastMessageId, b.lastMessageId),
+                a.lastActivityAt.isAfter(b.lastActivityAt) ? a.lastActivityAt : b.lastActivityAt,
+                a.messageCount + b.messageCount
+            );
+        }
+
+        public Long getLastMessageId() { return lastMessageId; }
+        public LocalDateTime getLastActivityAt() { return lastActivityAt; }
+        public long getMessageCount() { return messageCount; }
+    }
+}
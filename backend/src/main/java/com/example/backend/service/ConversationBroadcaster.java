@@ -0,0 +1,141 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.ReadCursorDTO;
+import com.example.backend.dto.TypingStateDTO;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+/**
+ * Single entry point for conversation topic and user-queue broadcasts.
+ *
+ * A single-destination send goes through {@code convertAndSend}, which already serializes the payload
+ * once and lets the simple broker hand that one array to every subscriber. Only the fan-out to many
+ * user queues ({@link #sendToUsers}) converts up front, so the same message is reused per recipient.
+ * The STOMP handler still encodes one frame per subscriber session, each a new array with its own copy
+ * of the payload: WebSocketSession takes a single message per send, so frames cannot share a buffer.
+ */
+@Service
+public class ConversationBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final PostgresClusterRelay clusterRelay;
+
+    public ConversationBroadcaster(SimpMessagingTemplate messagingTemplate,
+                                   SimpUserRegistry userRegistry,
+                                   ObjectProvider<PostgresClusterRelay> clusterRelay) {
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.clusterRelay = clusterRelay.getIfAvailable();
+    }
+
+    public static String conversationTopic(Long conversationId) {
+        return "/topic/conversation." + conversationId;
+    }
+
+    public void broadcastMessage(ChatMessageDTO message) {
+        send(conversationTopic(message.getConversationId()), message);
+    }
+
+    public void broadcastReadCursor(ReadCursorDTO cursor) {
+        send(conversationTopic(cursor.getConversationId()) + ".read", cursor);
+    }
+
+    public void broadcastTyping(TypingStateDTO state) {
+        send(conversationTopic(state.getConversationId()) + ".typing", state);
+    }
+
+    /**
+     * Sends to a user destination such as {@code /queue/inbox}; {@code user} is the principal name (email).
+     */
+    public void sendToUser(String user, String destination, Object payload) {
+        send("/user/" + user + destination, payload);
+    }
+
+    /**
+     * Sends to a user destination on this node's sessions only, never through the cluster relay. For
+     * per-node state (presence) that would be wrong if another node delivered it.
+     */
+    public void sendToLocalUser(String user, String destination, Object payload) {
+        messagingTemplate.convertAndSendToUser(user, destination, payload);
+    }
+
+    /**
+     * Sends to a user destination of one STOMP session of that user, on this node only. For answers
+     * that belong to the session that asked (send acks), not to every tab or device of the user.
+     */
+    public void sendToSession(String user, String sessionId, String destination, Object payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(user, destination, payload, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Sends one payload to the same user destination of many users, converting it once. Users with no
+     * session known to this node's user registry are skipped before any work is done for them, so
+     * offline members of a large group cost a map lookup. With the cluster relay the whole fan-out is
+     * one notification, and each other node applies the same filter against its own registry.
+     */
+    public void sendToUsers(Collection<String> users, String destination, Object payload) {
+        Message<?> message = null;
+        for (String user : users) {
+            if (userRegistry.getUser(user) == null) {
+                continue;
+            }
+            if (message == null) {
+                message = encode(payload);
+            }
+            messagingTemplate.send("/user/" + user + destination, message);
+        }
+        if (clusterRelay != null && !users.isEmpty()) {
+            try {
+                clusterRelay.publishToUsers(users, destination, message != null ? message : encode(payload));
+            } catch (RuntimeException e) {
+                System.err.println("Cluster relay publish failed for " + destination + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the payload to the destination, and to the other nodes when the Postgres cluster relay is
+     * active. The relay needs the serialized bytes, so in that mode the payload is converted here and the
+     * same message is given to the local broker.
+     */
+    public void send(String destination, Object payload) {
+        if (clusterRelay == null) {
+            messagingTemplate.convertAndSend(destination, payload);
+            return;
+        }
+        sendEncoded(encode(payload), destination);
+    }
+
+    private void sendEncoded(Message<?> message, String destination) {
+        messagingTemplate.send(destination, message);
+        if (clusterRelay != null) {
+            try {
+                clusterRelay.publish(destination, message);
+            } catch (RuntimeException e) {
+                System.err.println("Cluster relay publish failed for " + destination + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Message<?> encode(Object payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setLeaveMutable(true);
+        Message<?> message = messagingTemplate.getMessageConverter().toMessage(payload, accessor.getMessageHeaders());
+        if (message == null) {
+            throw new IllegalStateException("No converter for payload " + payload.getClass().getName());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.service;
+
+import com.example.backend.repo.ConversationParticipantRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member ids and emails per conversation, for fanning events out to user destinations without a
+ * participant query per message.
+ *
+ * Entries live for {@code chat.inbox.membership-ttl-ms} and at most
+ * {@code chat.inbox.membership-max-conversations} are kept, least recently used first out. Membership
+ * changes made through this node invalidate the entry at once; changes made on other nodes are picked
+ * up when the entry expires.
+ */
+@Component
+public class ConversationMembershipCache {
+
+    private final ConversationParticipantRepository participantRepository;
+    private final long ttlMillis;
+    private final LinkedHashMap<Long, Entry> entries;
+    // Bumped by every invalidation, so a load that raced with one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ConversationMembershipCache(ConversationParticipantRepository participantRepository,
+                                       @Value("${chat.inbox.membership-ttl-ms:30000}") long ttlMillis,
+                                       @Value("${chat.inbox.membership-max-conversations:100000}") int maxConversations) {
+        this.participantRepository = participantRepository;
+        this.ttlMillis = ttlMillis;
+        int capacity = Math.max(1, maxConversations);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public List<Member> members(Long conversationId) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(conversationId);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.members;
+            }
+        }
+
+        long generation = invalidations.get();
+        List<Member> members = new ArrayList<>();
+        for (Object[] row : participantRepository.findMemberIdsAndEmails(conversationId)) {
+            members.add(new Member((Long) row[0], (String) row[1]));
+        }
+        members = Collections.unmodifiableList(members);
+        synchronized (entries) {
+            if (invalidations.get() == generation) {
+                entries.put(conversationId, new Entry(members, now + ttlMillis));
+            }
+        }
+        return members;
+    }
+
+    public void invalidate(Long conversationId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(conversationId);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public static final class Member {
+        private final Long userId;
+        private final String email;
+
+        public Member(Long userId, String email) {
+            this.userId = userId;
+            this.email = email;
+        }
+
+        public Long getUserId() { return userId; }
+        public String getEmail() { return email; }
+    }
+
+    private static final class Entry {
+        private final List<Member> members;
+        private final long expiresAt;
+
+        private Entry(List<Member> members, long expiresAt) {
+            this.members = members;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -4,14 +4,14 @@ import com.example.backend.dto.ChatMessageDTO;
 import com.example.backend.entity.Conversation;
 import com.example.backend.entity.Message;
 import com.example.backend.entity.User;
+import com.example.backend.repo.ConversationParticipantRepository;
 import com.example.backend.repo.ConversationRepository;
-import com.example.backend.repo.MessageRepository;
 import com.example.backend.repo.UserRepository;
+import com.example.backend.util.ConversationStripedExecutor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,6 +24,8 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class FileStorageService {
@@ -31,7 +33,7 @@ public class FileStorageService {
     private final Path fileStorageLocation;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private MessageBatchWriter messageBatchWriter;
 
     @Autowired
     private ConversationRepository conversationRepository;
@@ -40,7 +42,19 @@ public class FileStorageService {
     private UserRepository userRepository;
 
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private ConversationParticipantRepository participantRepository;
+
+    @Autowired
+    private ConversationStripedExecutor conversationExecutor;
+
+    @Autowired
+    private ConversationBroadcaster broadcaster;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private InboxEventPublisher inboxEvents;
 
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
@@ -82,9 +96,11 @@ public class FileStorageService {
 
             // Create message entity
             Conversation conversation = conversationRepository.findById(conversationId)
-                    .orElseThrow(() -> new RuntimeException("Conversation not found"));
+                    .orElseThrow(() -> new ChatException(ChatErrorCode.CONVERSATION_NOT_FOUND, "Conversation not found"));
             User sender = userRepository.findById(senderId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+                    .orElseThrow(() -> new ChatException(ChatErrorCode.SENDER_NOT_FOUND, "Sender not found"));
+            participantRepository.findByConversationIdAndUserId(conversationId, senderId)
+                    .orElseThrow(() -> new ChatException(ChatErrorCode.NOT_A_PARTICIPANT, "User is not a participant"));
 
             Message message = new Message();
             message.setConversation(conversation);
@@ -97,29 +113,27 @@ public class FileStorageService {
             message.setFileSize(file.getSize());
             message.setCreatedAt(LocalDateTime.now());
 
-            message = messageRepository.save(message);
-
-            // Create DTO
-            ChatMessageDTO messageDTO = new ChatMessageDTO(
-                    message.getId(),
-                    conversationId,
-                    senderId,
-                    sender.getEmail(),
-                    message.getContent(),
-                    messageType,
-                    message.getFileUrl(),
-                    message.getFileName(),
-                    message.getFileType(),
-                    message.getFileSize(),
-                    message.getThumbnailUrl(),
-                    message.getCreatedAt().toString(),
-                    false
-            );
-
-            // Send via WebSocket
-            messagingTemplate.convertAndSend("/topic/conversation/" + conversationId, messageDTO);
-
-            return messageDTO;
+            // Written and broadcast on the conversation's stripe, like chat sends, so seqs reach
+            // subscribers and the recent-message cache in order; the upload thread waits for it
+            CompletableFuture<ChatMessageDTO> sent = new CompletableFuture<>();
+            conversationExecutor.execute(conversationId, () -> {
+                try {
+                    ChatMessageDTO messageDTO = chatService.onMessagePersisted(messageBatchWriter.write(message));
+                    broadcaster.broadcastMessage(messageDTO);
+                    inboxEvents.messageSent(messageDTO);
+                    sent.complete(messageDTO);
+                } catch (RuntimeException e) {
+                    sent.completeExceptionally(e);
+                }
+            });
+            try {
+                return sent.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
 
         } catch (IOException ex) {
             throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
@@ -0,0 +1,134 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.InboxEventDTO;
+import com.example.backend.dto.ReadCursorDTO;
+import com.example.backend.entity.User;
+import com.example.backend.repo.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pushes compact inbox events to {@code /user/queue/inbox}, so a client keeps its conversation list
+ * current with one subscription instead of one per conversation topic.
+ *
+ * A new message produces two payloads whatever the group size: one for the sender's own sessions
+ * and one shared by every other member, each converted once (see
+ * {@link ConversationBroadcaster#sendToUsers}). Recipients come from {@link ConversationMembershipCache}.
+ * Events are best-effort; a client that missed some catches up through the inbox sync endpoint.
+ */
+@Service
+public class InboxEventPublisher {
+
+    public static final String INBOX_QUEUE = "/queue/inbox";
+
+    static final int PREVIEW_LENGTH = 140;
+
+    private final ConversationBroadcaster broadcaster;
+    private final ConversationMembershipCache membershipCache;
+    private final UserRepository userRepository;
+
+    public InboxEventPublisher(ConversationBroadcaster broadcaster,
+                               ConversationMembershipCache membershipCache,
+                               UserRepository userRepository) {
+        this.broadcaster = broadcaster;
+        this.membershipCache = membershipCache;
+        this.userRepository = userRepository;
+    }
+
+    public void messageSent(ChatMessageDTO message) {
+        List<String> others = new ArrayList<>();
+        List<String> sender = new ArrayList<>(1);
+        try {
+            for (ConversationMembershipCache.Member member : membershipCache.members(message.getConversationId())) {
+                if (member.getUserId().equals(message.getSenderId())) {
+                    sender.add(member.getEmail());
+                } else {
+                    others.add(member.getEmail());
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Inbox event for message " + message.getId() + " failed: " + e.getMessage());
+            return;
+        }
+        ChatMessageDTO preview = preview(message);
+        send(others, messageEvent(preview, 1));
+        send(sender, messageEvent(preview, 0));
+    }
+
+    /**
+     * Tells the reader's other sessions that their read watermark moved.
+     */
+    public void readAdvanced(ReadCursorDTO cursor, String readerEmail) {
+        InboxEventDTO event = new InboxEventDTO("READ", cursor.getConversationId());
+        event.setLastReadMessageId(cursor.getLastReadMessageId());
+        send(List.of(readerEmail), event);
+    }
+
+    /**
+     * Call after a membership change has committed: added users get JOINED, removed users LEFT and
+     * everyone else in the conversation UPDATED. With nothing added or removed (e.g. a new admin)
+     * every member gets UPDATED.
+     */
+    public void membershipChanged(Long conversationId, Collection<Long> addedUserIds, Collection<Long> removedUserIds) {
+        membershipCache.invalidate(conversationId);
+        try {
+            Set<Long> added = new HashSet<>(addedUserIds);
+            List<String> joined = new ArrayList<>();
+            List<String> remaining = new ArrayList<>();
+            for (ConversationMembershipCache.Member member : membershipCache.members(conversationId)) {
+                if (added.contains(member.getUserId())) {
+                    joined.add(member.getEmail());
+                } else {
+                    remaining.add(member.getEmail());
+                }
+            }
+            List<String> left = new ArrayList<>();
+            if (!removedUserIds.isEmpty()) {
+                for (User user : userRepository.findAllById(removedUserIds)) {
+                    left.add(user.getEmail());
+                }
+            }
+            send(joined, new InboxEventDTO("JOINED", conversationId));
+            send(left, new InboxEventDTO("LEFT", conversationId));
+            send(remaining, new InboxEventDTO("UPDATED", conversationId));
+        } catch (RuntimeException e) {
+            System.err.println("Inbox membership event for conversation " + conversationId + " failed: " + e.getMessage());
+        }
+    }
+
+    private void send(List<String> users, InboxEventDTO event) {
+        if (users.isEmpty()) {
+            return;
+        }
+        try {
+            broadcaster.sendToUsers(users, INBOX_QUEUE, event);
+        } catch (RuntimeException e) {
+            System.err.println("Inbox event " + event.getType() + " failed: " + e.getMessage());
+        }
+    }
+
+    private static InboxEventDTO messageEvent(ChatMessageDTO preview, int unreadDelta) {
+        InboxEventDTO event = new InboxEventDTO("MESSAGE", preview.getConversationId());
+        event.setLastMessage(preview);
+        event.setUnreadDelta(unreadDelta);
+        return event;
+    }
+
+    static ChatMessageDTO preview(ChatMessageDTO message) {
+        String content = message.getContent();
+        if (content != null && content.length() > PREVIEW_LENGTH) {
+            content = content.substring(0, PREVIEW_LENGTH);
+        }
+        ChatMessageDTO preview = new ChatMessageDTO(message.getId(), message.getConversationId(), message.getSenderId(),
+            message.getSenderEmail(), content, message.getMessageType(), message.getCreatedAt(), message.getIsRead());
+        preview.setSeq(message.getSeq());
+        preview.setFileName(message.getFileName());
+        return preview;
+    }
+}
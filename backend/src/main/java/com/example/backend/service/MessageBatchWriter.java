@@ -0,0 +1,304 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Message;
+import com.example.backend.util.ConversationStripedExecutor;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in write-behind pipeline for chat messages. Messages submitted within a short window
+ * (or until the batch is full) are written with one multi-row INSERT in one transaction.
+ * A single writer thread drains the queue in arrival order, so per-conversation order is kept,
+ * and each submitter's future completes only after its batch has committed. Futures are completed
+ * on the conversation's stripe, so callbacks (activity, cache, broadcast, inbox fan-out, acks) keep
+ * per-conversation order without holding up the next batch.
+ *
+ * Every insert, batched or not ({@link #write}), also assigns the messages' per-conversation
+ * {@code seq} by advancing {@code conversations.last_message_seq} in the same transaction. The
+ * conversation rows stay locked until commit, so numbers are gap-free and commit in order on
+ * every node; the cost is one update round trip per conversation in a batch, not per message.
+ *
+ * This is the one per-insert write to the conversation row left after activity moved to
+ * {@link ConversationActivityTracker}, and it is kept on purpose: gap-free seqs need a lock that
+ * serializes writers to a conversation, and a separate counter row would take the same lock with one
+ * more table to keep in step. With batching off, every message locks its conversation row until its
+ * own insert commits, so a busy group's throughput is bounded by that row; enable batching to share
+ * one lock across the batch.
+ */
+@Component
+public class MessageBatchWriter {
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO messages (id, conversation_id, seq, sender_id, content, message_type, file_url, file_name, " +
+        "file_type, file_size, thumbnail_url, is_read, created_at, client_message_id) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 14;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingMessage> queue;
+    private final ConversationStripedExecutor callbackExecutor;
+    private final TimeOrderedIdGenerator idGenerator;
+
+    // Guarded by this for writes, so no submit can slip in after stop() has drained the queue
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public MessageBatchWriter(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${chat.persistence.batching.enabled:false}") boolean enabled,
+                              @Value("${chat.persistence.batching.window-ms:5}") long windowMillis,
+                              @Value("${chat.persistence.batching.max-batch-size:500}") int maxBatchSize,
+                              @Value("${chat.persistence.batching.queue-capacity:10000}") int queueCapacity,
+                              ConversationStripedExecutor callbackExecutor,
+                              TimeOrderedIdGenerator idGenerator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        // PostgreSQL allows at most 65535 bind parameters per statement
+        this.maxBatchSize = Math.max(1, Math.min(maxBatchSize, 65535 / COLUMNS));
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, queueCapacity));
+        this.callbackExecutor = callbackExecutor;
+        this.idGenerator = idGenerator;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            running = true;
+        }
+        writerThread = new Thread(this::run, "message-batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        synchronized (this) {
+            running = false;
+        }
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Anything still queued is written synchronously so no accepted message is lost
+        List<PendingMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a message for the next batch. The returned future completes with the same message,
+     * its id assigned, once the batch containing it has committed. Throws a {@link ChatException}
+     * with {@link ChatErrorCode#OVERLOADED} when the queue is full or the writer is stopping.
+     */
+    public CompletableFuture<Message> submit(Message message) {
+        PendingMessage pending = new PendingMessage(message);
+        synchronized (this) {
+            if (!running) {
+                throw new ChatException(ChatErrorCode.OVERLOADED, "Message writer is not accepting messages");
+            }
+            if (!queue.offer(pending)) {
+                throw new ChatException(ChatErrorCode.OVERLOADED, "Message queue is full");
+            }
+        }
+        return pending.future;
+    }
+
+    /**
+     * Writes one message in the caller's thread, with the same id and seq assignment as a batch.
+     * Used when batching is off and for messages that must not wait for a batch window.
+     */
+    public Message write(Message message) {
+        transactionTemplate.executeWithoutResult(status -> insert(List.of(new PendingMessage(message))));
+        return message;
+    }
+
+    private void run() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                PendingMessage first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        queue.drainTo(batch, maxBatchSize - batch.size());
+                        break;
+                    }
+                    PendingMessage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                flush(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("Message batch writer error: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingMessage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(batch));
+            complete(batch);
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), batchFailure);
+                return;
+            }
+            // Isolate the bad rows: retry one by one so a single failure does not fail the batch
+            for (PendingMessage pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(pending)));
+                    complete(List.of(pending));
+                } catch (RuntimeException e) {
+                    fail(pending, e);
+                }
+            }
+        }
+    }
+
+    private void insert(List<PendingMessage> batch) {
+        long[] ids = idGenerator.nextIds(batch.size());
+        long[] seqs = allocateSeqs(batch);
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int i = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            Message message = batch.get(row).message;
+            if (row > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW);
+            args[i++] = ids[row];
+            args[i++] = message.getConversation().getId();
+            args[i++] = seqs[row];
+            args[i++] = message.getSender().getId();
+            args[i++] = message.getContent();
+            args[i++] = message.getMessageType();
+            args[i++] = message.getFileUrl();
+            args[i++] = message.getFileName();
+            args[i++] = message.getFileType();
+            args[i++] = message.getFileSize();
+            args[i++] = message.getThumbnailUrl();
+            args[i++] = message.getIsRead();
+            args[i++] = Timestamp.valueOf(message.getCreatedAt());
+            args[i++] = message.getClientMessageId();
+        }
+        jdbcTemplate.update(sql.toString(), args);
+
+        for (int row = 0; row < batch.size(); row++) {
+            batch.get(row).message.setId(ids[row]);
+            batch.get(row).message.setSeq(seqs[row]);
+        }
+    }
+
+    /**
+     * Reserves one seq per message, in batch order within each conversation. Must run inside the
+     * insert transaction: a rollback returns the numbers, and the row locks taken here order
+     * concurrent writers to the same conversation by commit.
+     */
+    private long[] allocateSeqs(List<PendingMessage> batch) {
+        // Conversation id -> messages in this batch, ascending so lock order matches the activity flush
+        TreeMap<Long, Integer> counts = new TreeMap<>();
+        for (PendingMessage pending : batch) {
+            counts.merge(pending.message.getConversation().getId(), 1, Integer::sum);
+        }
+
+        Map<Long, Long> nextSeq = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            List<Long> lastSeq = jdbcTemplate.queryForList(
+                "UPDATE conversations SET last_message_seq = COALESCE(last_message_seq, 0) + ? WHERE id = ? RETURNING last_message_seq",
+                Long.class, entry.getValue(), entry.getKey());
+            if (lastSeq.isEmpty()) {
+                throw new IllegalStateException("Conversation not found: " + entry.getKey());
+            }
+            nextSeq.put(entry.getKey(), lastSeq.get(0) - entry.getValue() + 1);
+        }
+
+        long[] seqs = new long[batch.size()];
+        for (int row = 0; row < batch.size(); row++) {
+            seqs[row] = nextSeq.merge(batch.get(row).message.getConversation().getId(), 1L, Long::sum) - 1;
+        }
+        return seqs;
+    }
+
+    private void complete(List<PendingMessage> batch) {
+        for (PendingMessage pending : batch) {
+            onStripe(pending, () -> pending.future.complete(pending.message));
+        }
+    }
+
+    private void fail(PendingMessage pending, RuntimeException error) {
+        onStripe(pending, () -> pending.future.completeExceptionally(error));
+    }
+
+    // Keeps the writer thread free of callback work; per-conversation order follows from the stripe's FIFO.
+    // A full stripe makes the writer wait rather than complete here, which would overtake completions
+    // still queued for the same conversation; stripe tasks never wait on the writer, so the wait ends.
+    private void onStripe(PendingMessage pending, Runnable completion) {
+        try {
+            callbackExecutor.executeWhenRoom(pending.message.getConversation().getId(), completion);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: complete here rather than leave the sender waiting
+            completion.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completion.run();
+        }
+    }
+
+    private static final class PendingMessage {
+        private final Message message;
+        private final CompletableFuture<Message> future = new CompletableFuture<>();
+
+        private PendingMessage(Message message) {
+            this.message = message;
+        }
+    }
+}
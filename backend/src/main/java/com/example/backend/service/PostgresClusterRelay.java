@@ -0,0 +1,277 @@
+package com.example.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-node fan-out over PostgreSQL LISTEN/NOTIFY, for {@code chat.broker.mode=postgres}.
+ *
+ * Every broadcast made through {@link ConversationBroadcaster} is delivered to the local broker and
+ * published on the {@value #CHANNEL} channel; each other node re-publishes it to its own in-memory
+ * broker, so subscribers receive it whichever node they are connected to. Notifications carry the
+ * origin node id so a node ignores its own. A send of one payload to the same queue of many users
+ * ({@link #publishToUsers}) is one notification carrying the recipient list, and each node delivers
+ * it only to the recipients its own user registry knows. NOTIFY payloads are limited to 8000 bytes,
+ * so larger messages are stored in {@code cluster_payloads} and only their id is notified.
+ *
+ * Delivery is at-most-once: a node that is disconnected from the database misses what was published
+ * in the meantime, exactly like a client that is disconnected from the broker.
+ */
+@Component
+@ConditionalOnProperty(name = "chat.broker.mode", havingValue = "postgres")
+public class PostgresClusterRelay {
+
+    static final String CHANNEL = "chat_broadcast";
+    // Notification kinds: a plain destination, or a user destination plus its recipient list
+    private static final String TO_DESTINATION = "D";
+    private static final String TO_USERS = "U";
+    // Leaves headroom below PostgreSQL's 8000-byte NOTIFY limit
+    private static final int MAX_INLINE_BYTES = 7000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final long pollMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresClusterRelay(@Value("${spring.datasource.url}") String url,
+                                @Value("${spring.datasource.username}") String username,
+                                @Value("${spring.datasource.password}") String password,
+                                JdbcTemplate jdbcTemplate,
+                                SimpMessagingTemplate messagingTemplate,
+                                SimpUserRegistry userRegistry,
+                                @Value("${chat.broker.postgres.poll-ms:250}") long pollMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.pollMillis = pollMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cluster_payloads (" +
+            "id UUID PRIMARY KEY, body BYTEA NOT NULL, created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        running = true;
+        listenerThread = new Thread(this::listen, "cluster-relay-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Publishes an already converted message to the other nodes.
+     */
+    public void publish(String destination, Message<?> message) {
+        notify(TO_DESTINATION, destination, message, body(message));
+    }
+
+    /**
+     * Publishes an already converted message for the user destination (such as {@code /queue/inbox}) of
+     * every given user, as a single notification; the recipient list travels ahead of the payload.
+     */
+    public void publishToUsers(Collection<String> users, String destination, Message<?> message) {
+        if (users.isEmpty()) {
+            return;
+        }
+        byte[] recipients = (String.join("\n", users) + "\n\n").getBytes(StandardCharsets.UTF_8);
+        byte[] payload = body(message);
+        byte[] framed = new byte[recipients.length + payload.length];
+        System.arraycopy(recipients, 0, framed, 0, recipients.length);
+        System.arraycopy(payload, 0, framed, recipients.length, payload.length);
+        notify(TO_USERS, destination, message, framed);
+    }
+
+    private void notify(String kind, String destination, Message<?> message, byte[] body) {
+        MimeType contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        String header = nodeId + "\n" + kind + "\n" + destination + "\n" + (contentType != null ? contentType.toString() : "") + "\n";
+
+        String encoded = Base64.getEncoder().encodeToString(body);
+        String notification;
+        if (header.length() + encoded.length() + 1 <= MAX_INLINE_BYTES) {
+            notification = header + "I" + encoded;
+        } else {
+            UUID id = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO cluster_payloads (id, body) VALUES (?, ?)", id, body);
+            notification = header + "R" + id;
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, notification);
+    }
+
+    private static byte[] body(Message<?> message) {
+        if (!(message.getPayload() instanceof byte[] body)) {
+            throw new IllegalArgumentException("Cluster relay needs a serialized payload");
+        }
+        return body;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.broker.postgres.payload-retention-ms:60000}")
+    public void purgeStoredPayloads() {
+        jdbcTemplate.update("DELETE FROM cluster_payloads WHERE created_at < CURRENT_TIMESTAMP - INTERVAL '5 minutes'");
+    }
+
+    private void listen() {
+        while (running) {
+            // Opened outside the Hikari pool: the LISTEN session lives as long as the node, and holding a
+            // pooled connection that long would shrink the pool for request work. Closing the connection
+            // also ends the LISTEN on the server.
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try {
+                    while (running) {
+                        PGNotification[] notifications = pgConnection.getNotifications((int) pollMillis);
+                        if (notifications == null) {
+                            continue;
+                        }
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                } finally {
+                    unlisten(connection);
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                System.err.println("Cluster relay connection lost, reconnecting: " + e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void unlisten(Connection connection) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("UNLISTEN " + CHANNEL);
+        } catch (SQLException e) {
+            // The connection is being closed anyway, which drops the subscription server-side
+        }
+    }
+
+    void deliver(String notification) {
+        try {
+            String[] parts = notification.split("\n", 5);
+            if (parts.length < 5 || nodeId.equals(parts[0])) {
+                return;
+            }
+            String kind = parts[1];
+            String destination = parts[2];
+            String contentType = parts[3];
+            String body = parts[4];
+
+            byte[] payload;
+            if (body.startsWith("I")) {
+                payload = Base64.getDecoder().decode(body.substring(1));
+            } else {
+                List<byte[]> stored = jdbcTemplate.query("SELECT body FROM cluster_payloads WHERE id = ?",
+                    (rs, rowNum) -> rs.getBytes(1), UUID.fromString(body.substring(1)));
+                if (stored.isEmpty()) {
+                    System.err.println("Cluster relay payload expired before delivery to " + destination);
+                    return;
+                }
+                payload = stored.get(0);
+            }
+
+            if (TO_USERS.equals(kind)) {
+                deliverToUsers(destination, contentType, payload);
+            } else {
+                messagingTemplate.send(destination, toMessage(contentType, payload));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Cluster relay delivery failed: " + e.getMessage());
+        }
+    }
+
+    private void deliverToUsers(String destination, String contentType, byte[] framed) {
+        int end = indexOfBlankLine(framed);
+        if (end < 0) {
+            System.err.println("Cluster relay dropped a malformed user fan-out to " + destination);
+            return;
+        }
+        String[] users = new String(framed, 0, end, StandardCharsets.UTF_8).split("\n");
+        Message<byte[]> message = null;
+        for (String user : users) {
+            // Only users with a session on this node; the node they are connected to delivers to the rest
+            if (userRegistry.getUser(user) == null) {
+                continue;
+            }
+            if (message == null) {
+                message = toMessage(contentType, Arrays.copyOfRange(framed, end + 2, framed.length));
+            }
+            messagingTemplate.send("/user/" + user + destination, message);
+        }
+    }
+
+    private static int indexOfBlankLine(byte[] framed) {
+        for (int i = 0; i + 1 < framed.length; i++) {
+            if (framed[i] == '\n' && framed[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Message<byte[]> toMessage(String contentType, byte[] payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (!contentType.isEmpty()) {
+            accessor.setContentType(MimeType.valueOf(contentType));
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+}
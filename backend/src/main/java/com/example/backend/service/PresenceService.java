@@ -0,0 +1,173 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.PresenceDTO;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.security.AuthenticatedUser;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks which users have at least one live STOMP session and tells their contacts
+ * (users sharing a conversation) when that changes.
+ *
+ * Sessions are registered on CONNECTED and removed on DISCONNECT; sessions that die without a
+ * DISCONNECT frame are closed by the broker once they miss their heartbeats (see WebSocketConfig),
+ * which raises the same disconnect event. Transitions are not sent immediately: users whose state
+ * changed are collected and flushed every {@code chat.presence.flush-ms} with one contact query per
+ * chunk and one {@code /user/queue/presence} message per online contact, so reconnect flaps inside
+ * one interval cost nothing. The query is restricted to contacts online on this node, so a user in a
+ * 10k-member group does not pull 10k rows per transition.
+ *
+ * Memory is two map entries per session and one per online user, roughly 200 bytes per connection
+ * (about 20 MB for 100k connections). Presence is per node and its updates are only delivered to
+ * this node's sessions: a cluster-wide view needs {@code chat.broker.mode=simple} (one node), since in
+ * the other modes a user connected elsewhere would be reported offline.
+ */
+@Service
+public class PresenceService {
+
+    private static final int CONTACT_QUERY_CHUNK = 1000;
+
+    private final ConversationParticipantRepository participantRepository;
+    private final ConversationBroadcaster broadcaster;
+
+    // sessionId -> userId
+    private final Map<String, Long> sessionOwners = new ConcurrentHashMap<>();
+    // userId -> number of live sessions
+    private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
+    // Users whose online state may have changed since the last flush
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // Users last announced as online
+    private final Set<Long> announcedOnline = ConcurrentHashMap.newKeySet();
+
+    public PresenceService(ConversationParticipantRepository participantRepository,
+                           ConversationBroadcaster broadcaster) {
+        this.participantRepository = participantRepository;
+        this.broadcaster = broadcaster;
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        Long userId = userId(event.getUser());
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (userId == null || sessionId == null) {
+            return;
+        }
+        if (sessionOwners.putIfAbsent(sessionId, userId) == null) {
+            sessionCounts.merge(userId, 1, Integer::sum);
+            changed.add(userId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Long userId = sessionOwners.remove(event.getSessionId());
+        if (userId == null) {
+            return;
+        }
+        sessionCounts.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        changed.add(userId);
+    }
+
+    public boolean isOnline(Long userId) {
+        return sessionCounts.containsKey(userId);
+    }
+
+    public Map<Long, Boolean> getPresence(Collection<Long> userIds) {
+        Map<Long, Boolean> presence = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            presence.put(userId, isOnline(userId));
+        }
+        return presence;
+    }
+
+    public int getOnlineUserCount() {
+        return sessionCounts.size();
+    }
+
+    public int getSessionCount() {
+        return sessionOwners.size();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.flush-ms:1000}")
+    public void flush() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<PresenceDTO> transitions = new ArrayList<>();
+        for (Long userId : new ArrayList<>(changed)) {
+            changed.remove(userId);
+            boolean online = isOnline(userId);
+            // Skip flaps that ended where they started
+            boolean wasOnline = online ? !announcedOnline.add(userId) : !announcedOnline.remove(userId);
+            if (online != wasOnline) {
+                transitions.add(new PresenceDTO(userId, online));
+            }
+        }
+        if (transitions.isEmpty()) {
+            return;
+        }
+
+        Map<Long, PresenceDTO> byUser = new HashMap<>();
+        for (PresenceDTO transition : transitions) {
+            byUser.put(transition.getUserId(), transition);
+        }
+
+        // contact email -> transitions of users they share a conversation with
+        Map<String, List<PresenceDTO>> updatesByContact = new HashMap<>();
+        List<Long> userIds = new ArrayList<>(byUser.keySet());
+        Long[] onlineUserIds = sessionCounts.keySet().toArray(new Long[0]);
+        try {
+            for (int from = 0; from < userIds.size(); from += CONTACT_QUERY_CHUNK) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + CONTACT_QUERY_CHUNK, userIds.size()));
+                for (Object[] row : participantRepository.findOnlineContactsOfUsers(chunk, onlineUserIds)) {
+                    updatesByContact.computeIfAbsent((String) row[2], email -> new ArrayList<>()).add(byUser.get((Long) row[0]));
+                }
+            }
+        } catch (RuntimeException e) {
+            // Roll the announced state back so the next flush retries these transitions
+            for (PresenceDTO transition : transitions) {
+                if (transition.getOnline()) {
+                    announcedOnline.remove(transition.getUserId());
+                } else {
+                    announcedOnline.add(transition.getUserId());
+                }
+                changed.add(transition.getUserId());
+            }
+            System.err.println("Presence flush failed: " + e.getMessage());
+            return;
+        }
+
+        updatesByContact.forEach((email, updates) -> {
+            try {
+                broadcaster.sendToLocalUser(email, "/queue/presence", updates);
+            } catch (RuntimeException e) {
+                System.err.println("Presence update to " + email + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private static Long userId(Principal principal) {
+        if (principal == null) {
+            return null;
+        }
+        try {
+            return AuthenticatedUser.from(principal).getId();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
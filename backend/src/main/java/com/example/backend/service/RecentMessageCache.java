@@ -0,0 +1,343 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-conversation ring buffer of the newest messages, so opening an active chat does not hit the database.
+ *
+ * A conversation's buffer is primed from the first-page query and then kept current by
+ * {@link #append} for every message persisted on this node. It always holds a contiguous run of the
+ * newest messages (consecutive seqs), so any first page no larger than that run, and any resume
+ * from a seq inside it, is served from memory. Whole
+ * conversations are evicted least-recently-used once the estimated size of all buffers exceeds
+ * {@code chat.message-cache.max-bytes}.
+ *
+ * Messages written by other nodes are not seen, so the cache is always off when
+ * {@code chat.broker.mode} is not {@code simple}, whatever {@code chat.message-cache.enabled} says.
+ */
+@Component
+public class RecentMessageCache {
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used conversation
+    private final LinkedHashMap<Long, Ring> rings = new LinkedHashMap<>(256, 0.75f, true);
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public RecentMessageCache(MeterRegistry meterRegistry,
+                              @Value("${chat.message-cache.enabled:true}") boolean enabled,
+                              @Value("${chat.broker.mode:simple}") String brokerMode,
+                              @Value("${chat.message-cache.messages-per-conversation:100}") int capacity,
+                              @Value("${chat.message-cache.max-bytes:67108864}") long maxBytes) {
+        this.enabled = enabled && "simple".equals(brokerMode);
+        if (enabled && !this.enabled) {
+            System.err.println("Recent message cache disabled: it only sees local writes and chat.broker.mode=" + brokerMode);
+        }
+        this.capacity = Math.max(1, capacity);
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("chat.message.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("chat.message.cache.misses").register(meterRegistry);
+        this.evictions = Counter.builder("chat.message.cache.evictions").register(meterRegistry);
+        Gauge.builder("chat.message.cache.bytes", totalBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("chat.message.cache.conversations", this, RecentMessageCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of messages {@link #prime} should be given so later first pages can be served from memory.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The newest {@code size} messages, newest first, or null on a miss. A miss registers the
+     * conversation so messages persisted while the caller loads the page are not lost; the caller
+     * is expected to follow up with {@link #prime}.
+     */
+    public List<ChatMessageDTO> getNewest(Long conversationId, int size) {
+        if (!enabled || size > capacity) {
+            return null;
+        }
+        Ring ring;
+        synchronized (rings) {
+            ring = rings.get(conversationId);
+            if (ring == null) {
+                ring = new Ring(capacity);
+                rings.put(conversationId, ring);
+            }
+        }
+        List<ChatMessageDTO> newest = ring.newest(size);
+        if (newest == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return newest;
+    }
+
+    /**
+     * Messages with a seq above {@code afterSeq}, oldest first and at most {@code limit} of them, or
+     * null when the buffer does not reach back that far. Unlike {@link #getNewest} a miss does not
+     * register the conversation: resumes are bursty and should not evict the warm working set.
+     */
+    public List<ChatMessageDTO> getAfterSeq(Long conversationId, long afterSeq, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Ring ring;
+        synchronized (rings) {
+            ring = rings.get(conversationId);
+        }
+        List<ChatMessageDTO> after = ring == null ? null : ring.afterSeq(afterSeq, limit);
+        if (after == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return after;
+    }
+
+    /**
+     * Fills the buffer from a database page (newest first). {@code complete} means the page holds
+     * every message of the conversation.
+     */
+    public void prime(Long conversationId, List<ChatMessageDTO> newestFirst, boolean complete) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rings) {
+            Ring ring = rings.get(conversationId);
+            if (ring == null) {
+                return;
+            }
+            // Mutate and account under the map lock, so an eviction or invalidate cannot drop the
+            // ring in between and leave its delta counted for a ring that is no longer tracked
+            totalBytes.addAndGet(ring.prime(newestFirst, complete));
+        }
+        evictIfOverBudget();
+    }
+
+    /**
+     * Records a newly persisted message; a no-op for conversations that are not cached.
+     */
+    public void append(ChatMessageDTO message) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rings) {
+            // Counts as a use: conversations receiving messages stay warm
+            Ring ring = rings.get(message.getConversationId());
+            if (ring == null) {
+                return;
+            }
+            totalBytes.addAndGet(ring.append(message));
+        }
+        evictIfOverBudget();
+    }
+
+    public void invalidate(Long conversationId) {
+        synchronized (rings) {
+            Ring removed = rings.remove(conversationId);
+            if (removed != null) {
+                totalBytes.addAndGet(-removed.bytes());
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (rings) {
+            return rings.size();
+        }
+    }
+
+    public long getEstimatedBytes() {
+        return totalBytes.get();
+    }
+
+    private void evictIfOverBudget() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (rings) {
+            Iterator<Map.Entry<Long, Ring>> eldest = rings.entrySet().iterator();
+            while (totalBytes.get() > maxBytes && eldest.hasNext()) {
+                Ring ring = eldest.next().getValue();
+                eldest.remove();
+                totalBytes.addAndGet(-ring.bytes());
+                evictions.increment();
+            }
+        }
+    }
+
+    static long estimateBytes(ChatMessageDTO message) {
+        // DTO object with boxed fields, plus the Latin-1/UTF-16 payload of its strings
+        return 160
+            + length(message.getSenderEmail()) + length(message.getContent()) + length(message.getMessageType())
+            + length(message.getFileUrl()) + length(message.getFileName()) + length(message.getFileType())
+            + length(message.getThumbnailUrl()) + length(message.getCreatedAt());
+    }
+
+    private static long length(String value) {
+        return value == null ? 0 : 40L + value.length() * 2L;
+    }
+
+    /**
+     * Fixed-size circular buffer. Mutated only while holding the {@code rings} lock (lock order:
+     * rings, then ring); reads take just the ring's own lock. Until primed, appends are parked in {@code pendingAppends}
+     * and merged into the primed contents.
+     */
+    private static final class Ring {
+        private final ChatMessageDTO[] slots;
+        private int head;           // index of the newest message
+        private int count;
+        private boolean primed;
+        private boolean complete;   // no older messages exist than the ones held
+        private long bytes;
+        private final List<ChatMessageDTO> pendingAppends = new ArrayList<>();
+
+        private Ring(int capacity) {
+            this.slots = new ChatMessageDTO[capacity];
+        }
+
+        synchronized List<ChatMessageDTO> newest(int size) {
+            if (!primed || (count < size && !complete)) {
+                return null;
+            }
+            int n = Math.min(size, count);
+            List<ChatMessageDTO> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(slots[Math.floorMod(head - i, slots.length)]);
+            }
+            return result;
+        }
+
+        synchronized List<ChatMessageDTO> afterSeq(long afterSeq, int limit) {
+            if (!primed) {
+                return null;
+            }
+            // Walk back from the newest until the cursor is reached
+            int n = 0;
+            while (n < count && seq(slots[Math.floorMod(head - n, slots.length)]) > afterSeq) {
+                n++;
+            }
+            if (n == count && !complete && (count == 0 || seq(slots[Math.floorMod(head - n + 1, slots.length)]) > afterSeq + 1)) {
+                return null; // the run starts after the cursor, messages in between are not held
+            }
+            int take = Math.min(n, limit);
+            List<ChatMessageDTO> result = new ArrayList<>(take);
+            for (int i = n - 1; i >= n - take; i--) {
+                result.add(slots[Math.floorMod(head - i, slots.length)]);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the change in retained bytes.
+         */
+        synchronized long prime(List<ChatMessageDTO> newestFirst, boolean isComplete) {
+            long before = bytes;
+            clear();
+            complete = isComplete && newestFirst.size() <= slots.length;
+            int n = Math.min(newestFirst.size(), slots.length);
+            for (int i = n - 1; i >= 0; i--) {
+                push(newestFirst.get(i));
+            }
+            primed = true;
+            List<ChatMessageDTO> parked = new ArrayList<>(pendingAppends);
+            pendingAppends.clear();
+            for (ChatMessageDTO message : parked) {
+                appendPrimed(message);
+            }
+            return bytes - before;
+        }
+
+        synchronized long append(ChatMessageDTO message) {
+            long before = bytes;
+            if (!primed) {
+                if (pendingAppends.size() < slots.length) {
+                    pendingAppends.add(message);
+                }
+            } else {
+                appendPrimed(message);
+            }
+            return bytes - before;
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+
+        private void appendPrimed(ChatMessageDTO message) {
+            if (count > 0 && seq(message) != seq(slots[head]) + 1) {
+                if (seq(message) <= seq(slots[head]) && contains(seq(message))) {
+                    return; // already part of the primed page
+                }
+                // Out of order or a message missed (written by another node); fall back to a reload
+                clear();
+                primed = false;
+                return;
+            }
+            push(message);
+        }
+
+        private void push(ChatMessageDTO message) {
+            if (count == slots.length) {
+                // Overwrite the oldest slot; the run stays contiguous but no longer reaches the start
+                int oldest = Math.floorMod(head + 1, slots.length);
+                bytes -= estimateBytes(slots[oldest]);
+                complete = false;
+                count--;
+            }
+            if (count > 0) {
+                head = Math.floorMod(head + 1, slots.length);
+            }
+            slots[head] = message;
+            bytes += estimateBytes(message);
+            count++;
+        }
+
+        private boolean contains(long seq) {
+            for (int i = 0; i < count; i++) {
+                if (seq(slots[Math.floorMod(head - i, slots.length)]) == seq) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static long seq(ChatMessageDTO message) {
+            return message.getSeq();
+        }
+
+        private void clear() {
+            Arrays.fill(slots, null);
+            head = 0;
+            count = 0;
+            bytes = 0;
+            complete = false;
+        }
+    }
+}
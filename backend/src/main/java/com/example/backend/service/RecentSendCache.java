@@ -0,0 +1,125 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Dedup window for client message ids: (sender id, client message id) -> the send's result.
+ *
+ * A retry that arrives while the first attempt is still being written gets the same future, and one
+ * that arrives later gets the stored DTO, neither touching the database. At most
+ * {@code chat.message-dedup.max-entries} sends from the last {@code chat.message-dedup.window-ms} are
+ * kept, oldest evicted first; each entry holds its message DTO, so budget roughly 1 KB per entry.
+ * Older retries, and retries reaching another node, fall through to the (sender_id, client_message_id)
+ * unique index.
+ */
+@Component
+public class RecentSendCache {
+
+    private final long windowMillis;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    public RecentSendCache(@Value("${chat.message-dedup.window-ms:600000}") long windowMillis,
+                           @Value("${chat.message-dedup.max-entries:20000}") int maxEntries) {
+        this.windowMillis = windowMillis;
+        int capacity = Math.max(1, maxEntries);
+        // Insertion-ordered: the eldest entry is also the first to leave the window
+        this.entries = new LinkedHashMap<>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Registers {@code send} for the key unless a send within the window already holds it, in which
+     * case that send's result is returned instead and {@code send} is not registered.
+     */
+    public CompletableFuture<ChatMessageDTO> claim(Long senderId, String clientMessageId,
+                                                   CompletableFuture<ChatMessageDTO> send) {
+        Key key = new Key(senderId, clientMessageId);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.expiresAt > now) {
+                return existing.result;
+            }
+            // Re-insert so the entry moves to the young end of the window
+            entries.remove(key);
+            entries.put(key, new Entry(send, now + windowMillis));
+            return null;
+        }
+    }
+
+    /**
+     * Result of an earlier send with this key within the window, or null.
+     */
+    public CompletableFuture<ChatMessageDTO> find(Long senderId, String clientMessageId) {
+        synchronized (entries) {
+            Entry entry = entries.get(new Key(senderId, clientMessageId));
+            return entry != null && entry.expiresAt > System.currentTimeMillis() ? entry.result : null;
+        }
+    }
+
+    /**
+     * Forgets a send that failed, so a retry is attempted again rather than failing the same way.
+     */
+    public void release(Long senderId, String clientMessageId, CompletableFuture<ChatMessageDTO> send) {
+        synchronized (entries) {
+            Key key = new Key(senderId, clientMessageId);
+            Entry entry = entries.get(key);
+            if (entry != null && entry.result == send) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Key {
+        private final Long senderId;
+        private final String clientMessageId;
+
+        private Key(Long senderId, String clientMessageId) {
+            this.senderId = senderId;
+            this.clientMessageId = clientMessageId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key other)) {
+                return false;
+            }
+            return senderId.equals(other.senderId) && clientMessageId.equals(other.clientMessageId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(senderId, clientMessageId);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<ChatMessageDTO> result;
+        private final long expiresAt;
+
+        private Entry(CompletableFuture<ChatMessageDTO> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.SendAckDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers every STOMP send on the sender's {@code /user/queue/acks} with the server id and seq, or a
+ * {@link ChatErrorCode}. Acks carry the client message id, so a client can keep many sends in flight
+ * and match each answer to its optimistic message. An ack goes only to the session that sent the
+ * message, which is always connected to this node, so it never goes through the cluster relay. Failures are counted in
+ * {@code chat.message.send.failures}, tagged by code.
+ */
+@Service
+public class SendAcknowledger {
+
+    public static final String ACK_QUEUE = "/queue/acks";
+
+    private final ConversationBroadcaster broadcaster;
+    private final Counter acknowledged;
+    private final Map<ChatErrorCode, Counter> failures = new EnumMap<>(ChatErrorCode.class);
+
+    public SendAcknowledger(ConversationBroadcaster broadcaster, MeterRegistry meterRegistry) {
+        this.broadcaster = broadcaster;
+        this.acknowledged = Counter.builder("chat.message.send.acks").register(meterRegistry);
+        for (ChatErrorCode code : ChatErrorCode.values()) {
+            failures.put(code, Counter.builder("chat.message.send.failures").tag("code", code.name()).register(meterRegistry));
+        }
+    }
+
+    public void acknowledge(String user, String sessionId, String clientMessageId, ChatMessageDTO message) {
+        SendAckDTO ack = new SendAckDTO(clientMessageId, message.getConversationId(), true);
+        ack.setMessageId(message.getId());
+        ack.setSeq(message.getSeq());
+        acknowledged.increment();
+        send(user, sessionId, ack);
+    }
+
+    public void reject(String user, String sessionId, String clientMessageId, Long conversationId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        ChatErrorCode code = codeOf(cause);
+        failures.get(code).increment();
+
+        SendAckDTO ack = new SendAckDTO(clientMessageId, conversationId, false);
+        ack.setErrorCode(code.name());
+        // Internal failures are logged, not echoed to the client
+        ack.setError(code == ChatErrorCode.INTERNAL_ERROR ? "Message could not be sent" : cause.getMessage());
+        if (code == ChatErrorCode.INTERNAL_ERROR) {
+            System.err.println("Error sending message: " + cause.getMessage());
+        }
+        send(user, sessionId, ack);
+    }
+
+    static ChatErrorCode codeOf(Throwable error) {
+        if (error instanceof ChatException chatException) {
+            return chatException.getCode();
+        }
+        if (error instanceof RejectedExecutionException) {
+            return ChatErrorCode.OVERLOADED;
+        }
+        return ChatErrorCode.INTERNAL_ERROR;
+    }
+
+    private void send(String user, String sessionId, SendAckDTO ack) {
+        try {
+            broadcaster.sendToSession(user, sessionId, ACK_QUEUE, ack);
+        } catch (RuntimeException e) {
+            System.err.println("Send ack to " + user + " failed: " + e.getMessage());
+        }
+    }
+}
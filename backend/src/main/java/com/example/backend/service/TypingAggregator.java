@@ -0,0 +1,104 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.TypingStateDTO;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces typing events into one "who is typing" broadcast per conversation per tick.
+ *
+ * Keystroke events only refresh an expiry timestamp for the (conversation, user) pair; a conversation
+ * is broadcast on the next tick if its set of typers changed, and typers whose client stopped sending
+ * events drop out after {@code chat.typing.ttl-ms}. A non-empty set is also re-sent at least every half
+ * TTL, because clients expire a node's set after one TTL without hearing from it: that way a node that
+ * dies mid-typing cannot leave a stale indicator behind. Everything lives in memory, so a
+ * node only knows its own typers; broadcasts carry the node id ({@code chat.id.node-id}) and clients
+ * merge the per-node sets instead of letting one node's set overwrite another's.
+ */
+@Component
+public class TypingAggregator {
+
+    private final ConversationBroadcaster broadcaster;
+    private final int nodeId;
+    private final long ttlMillis;
+
+    // conversationId -> (user email -> typing expires at, epoch millis)
+    private final Map<Long, Map<String, Long>> typers = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    // conversationId -> last broadcast of a non-empty set, epoch millis
+    private final Map<Long, Long> lastSent = new ConcurrentHashMap<>();
+
+    public TypingAggregator(ConversationBroadcaster broadcaster,
+                            TimeOrderedIdGenerator idGenerator,
+                            @Value("${chat.typing.ttl-ms:5000}") long ttlMillis) {
+        this.broadcaster = broadcaster;
+        this.nodeId = idGenerator.getNodeId();
+        this.ttlMillis = ttlMillis;
+    }
+
+    public void update(Long conversationId, String userEmail, boolean isTyping) {
+        if (isTyping) {
+            startTyping(conversationId, userEmail, System.currentTimeMillis());
+        } else {
+            stopTyping(conversationId, userEmail);
+        }
+    }
+
+    void startTyping(Long conversationId, String userEmail, long nowMillis) {
+        // compute() keeps this atomic with the removal of empty conversations in tick()
+        typers.compute(conversationId, (id, current) -> {
+            Map<String, Long> conversationTypers = current != null ? current : new ConcurrentHashMap<>();
+            if (conversationTypers.put(userEmail, nowMillis + ttlMillis) == null) {
+                changed.add(conversationId);
+            }
+            return conversationTypers;
+        });
+    }
+
+    public void stopTyping(Long conversationId, String userEmail) {
+        Map<String, Long> conversationTypers = typers.get(conversationId);
+        if (conversationTypers != null && conversationTypers.remove(userEmail) != null) {
+            changed.add(conversationId);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${chat.typing.tick-ms:500}")
+    public void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    void tick(long nowMillis) {
+        for (Map.Entry<Long, Map<String, Long>> entry : typers.entrySet()) {
+            if (entry.getValue().values().removeIf(expiresAt -> expiresAt <= nowMillis)) {
+                changed.add(entry.getKey());
+            } else if (!entry.getValue().isEmpty()
+                    && nowMillis - lastSent.getOrDefault(entry.getKey(), Long.MIN_VALUE / 2) >= ttlMillis / 2) {
+                // Refresh, so clients keep this node's typers past their own expiry
+                changed.add(entry.getKey());
+            }
+        }
+
+        for (Long conversationId : new ArrayList<>(changed)) {
+            changed.remove(conversationId);
+            Map<String, Long> conversationTypers = typers.get(conversationId);
+            List<String> emails = conversationTypers == null ? new ArrayList<>() : new ArrayList<>(conversationTypers.keySet());
+            Collections.sort(emails);
+            if (emails.isEmpty()) {
+                typers.computeIfPresent(conversationId, (id, current) -> current.isEmpty() ? null : current);
+                lastSent.remove(conversationId);
+            } else {
+                lastSent.put(conversationId, nowMillis);
+            }
+            broadcaster.broadcastTyping(new TypingStateDTO(conversationId, nodeId, emails));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.backend.service;
+
+import com.example.backend.repo.UserRepository;
+import com.example.backend.repo.UserSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory id/email/role directory answering email type-ahead without a database round trip.
+ *
+ * The bulk of the users lives in an immutable {@link UserDirectorySnapshot} loaded once at startup.
+ * Registrations on this node arrive as {@link UserRegisteredEvent}s and go into a small sorted overlay
+ * that is folded into a fresh snapshot once it reaches {@code chat.user-directory.merge-threshold}
+ * entries. Users registered on another node are not seen until restart; {@link UserService} tops a
+ * short result up from the database.
+ *
+ * Disabled unless {@code chat.user-directory.enabled=true}; see {@link UserDirectorySnapshot} for the
+ * memory budget (roughly 100 MB per million users).
+ */
+@Service
+public class UserDirectory {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final int mergeThreshold;
+
+    private volatile UserDirectorySnapshot snapshot = UserDirectorySnapshot.EMPTY;
+    private volatile boolean ready;
+
+    // Lower-cased email -> entry, for users registered since the last merge
+    private final ConcurrentSkipListMap<String, UserDirectorySnapshot.DirectoryEntry> recent = new ConcurrentSkipListMap<>();
+
+    public UserDirectory(UserRepository userRepository,
+                         @Value("${chat.user-directory.enabled:false}") boolean enabled,
+                         @Value("${chat.user-directory.merge-threshold:1024}") int mergeThreshold) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.mergeThreshold = Math.max(1, mergeThreshold);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        UserDirectorySnapshot.Builder builder = new UserDirectorySnapshot.Builder((int) Math.min(userRepository.count(), Integer.MAX_VALUE));
+        try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {
+            users.forEach(u -> builder.add(u.getId(), u.getEmail(), u.getRole()));
+        }
+        snapshot = builder.build();
+        ready = true;
+        mergeRecent();
+    }
+
+    @EventListener
+    public void onUserRegistered(UserRegisteredEvent event) {
+        if (!enabled) {
+            return;
+        }
+        recent.put(event.getEmail().toLowerCase(Locale.ROOT),
+            new UserDirectorySnapshot.DirectoryEntry(event.getUserId(), event.getEmail(), event.getRole()));
+        if (ready && recent.size() >= mergeThreshold) {
+            mergeRecent();
+        }
+    }
+
+    /**
+     * True once the startup load has finished; until then every lookup should go to the database.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Users whose email starts with {@code query} (case-insensitive), in email order.
+     */
+    public List<UserSummary> searchPrefix(String query, Long excludeUserId, int limit) {
+        String prefix = query.toLowerCase(Locale.ROOT);
+        long excludeId = excludeUserId == null ? Long.MIN_VALUE : excludeUserId;
+        UserDirectorySnapshot current = snapshot;
+
+        List<UserSummary> fromSnapshot = new ArrayList<>(limit);
+        current.collectPrefix(prefix, excludeId, limit, fromSnapshot);
+
+        Map<String, UserDirectorySnapshot.DirectoryEntry> overlay = recent.tailMap(prefix, true);
+        if (overlay.isEmpty()) {
+            return fromSnapshot;
+        }
+
+        // Merge the two email-ordered runs by their stored lower-case keys; an overlay entry may
+        // already be in a freshly merged snapshot
+        List<UserSummary> results = new ArrayList<>(limit);
+        Iterator<Map.Entry<String, UserDirectorySnapshot.DirectoryEntry>> extra = overlay.entrySet().iterator();
+        Map.Entry<String, UserDirectorySnapshot.DirectoryEntry> next = nextMatch(extra, prefix, excludeId, current);
+        int i = 0;
+        while (results.size() < limit && (i < fromSnapshot.size() || next != null)) {
+            if (next == null || (i < fromSnapshot.size()
+                    && ((UserDirectorySnapshot.DirectoryEntry) fromSnapshot.get(i)).getKey().compareTo(next.getKey()) <= 0)) {
+                results.add(fromSnapshot.get(i++));
+            } else {
+                results.add(next.getValue());
+                next = nextMatch(extra, prefix, excludeId, current);
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return snapshot.size() + recent.size();
+    }
+
+    private synchronized void mergeRecent() {
+        if (recent.isEmpty()) {
+            return;
+        }
+        UserDirectorySnapshot current = snapshot;
+        List<Map.Entry<String, UserDirectorySnapshot.DirectoryEntry>> merged = new ArrayList<>(recent.entrySet());
+        UserDirectorySnapshot.Builder builder = current.toBuilder(merged.size());
+        for (Map.Entry<String, UserDirectorySnapshot.DirectoryEntry> entry : merged) {
+            UserDirectorySnapshot.DirectoryEntry user = entry.getValue();
+            if (!current.containsId(user.getId())) {
+                builder.add(user.getId(), user.getEmail(), user.getRole());
+            }
+        }
+        snapshot = builder.build();
+        for (Map.Entry<String, UserDirectorySnapshot.DirectoryEntry> entry : merged) {
+            recent.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static Map.Entry<String, UserDirectorySnapshot.DirectoryEntry> nextMatch(
+            Iterator<Map.Entry<String, UserDirectorySnapshot.DirectoryEntry>> entries,
+            String prefix, long excludeId, UserDirectorySnapshot current) {
+        while (entries.hasNext()) {
+            Map.Entry<String, UserDirectorySnapshot.DirectoryEntry> entry = entries.next();
+            if (!entry.getKey().startsWith(prefix)) {
+                return null;
+            }
+            long id = entry.getValue().getId();
+            if (id != excludeId && !current.containsId(id)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.backend.service;
+
+/**
+ * Published after a new user has been saved.
+ */
+public class UserRegisteredEvent {
+
+    private final Long userId;
+    private final String email;
+    private final String role;
+
+    public UserRegisteredEvent(Long userId, String email, String role) {
+        this.userId = userId;
+        this.email = email;
+        this.role = role;
+    }
+
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+}
@@ -2,22 +2,77 @@ package com.example.backend.service;
 
 import com.example.backend.entity.User;
 import com.example.backend.repo.UserRepository;
+import com.example.backend.repo.UserSummary;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
 @Service
 public class UserService {
 
+    // Trigram indexes only help once the query has at least three characters
+    private static final int MIN_SUBSTRING_LENGTH = 3;
+
     private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
+    private final int defaultSearchLimit;
+    private final int maxSearchLimit;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       UserDirectory userDirectory,
+                       @Value("${chat.user-search.default-limit:10}") int defaultSearchLimit,
+                       @Value("${chat.user-search.max-limit:50}") int maxSearchLimit) {
         this.userRepository = userRepository;
+        this.userDirectory = userDirectory;
+        this.defaultSearchLimit = defaultSearchLimit;
+        this.maxSearchLimit = maxSearchLimit;
     }
 
     public Page<User> getAllUsers(int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         return userRepository.findAll(pageable);
     }
+
+    /**
+     * Case-insensitive email search ranked by prefix match. Queries shorter than three characters
+     * only match prefixes; longer ones also match substrings.
+     *
+     * Prefix matches come first, from the in-memory {@link UserDirectory} when it is loaded and from
+     * an index-ordered query otherwise; substring matches are only looked up to top up a short result.
+     */
+    public List<UserSummary> searchUsers(String query, Long excludeUserId, Integer limit) {
+        String normalized = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        int effectiveLimit = limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
+        String escaped = escapeLike(normalized);
+        List<UserSummary> results = userDirectory.isReady()
+            ? userDirectory.searchPrefix(normalized, excludeUserId, effectiveLimit)
+            : new ArrayList<>(userRepository.searchByEmailPrefix(escaped + "%", excludeUserId, effectiveLimit));
+        if (results.size() < effectiveLimit && normalized.length() >= MIN_SUBSTRING_LENGTH) {
+            topUpWithSubstringMatches(escaped, excludeUserId, effectiveLimit - results.size(), results);
+        }
+        return results;
+    }
+
+    private void topUpWithSubstringMatches(String escaped, Long excludeUserId, int missing, List<UserSummary> results) {
+        List<UserSummary> substringMatches = new ArrayList<>(
+            userRepository.searchByEmailSubstring("%" + escaped + "%", escaped + "%", excludeUserId, missing));
+        // The query is unordered so it can stop early; order the few rows it returned
+        substringMatches.sort(Comparator.comparing(user -> user.getEmail().toLowerCase(Locale.ROOT)));
+        results.addAll(substringMatches);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.backend.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor striped by conversation id. Each stripe is a single worker thread with its own
+ * bounded FIFO queue: tasks for one conversation always land on the same stripe and run in
+ * submission order, while different conversations run in parallel on different stripes.
+ */
+public class ConversationStripedExecutor {
+
+    private final ThreadPoolExecutor[] stripes;
+
+    public ConversationStripedExecutor(int stripeCount, int queueCapacity, ThreadFactory threadFactory) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("At least one stripe is required");
+        }
+        this.stripes = new ThreadPoolExecutor[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), threadFactory);
+            // executeWhenRoom queues directly, which needs the worker to exist already
+            stripes[i].prestartAllCoreThreads();
+        }
+    }
+
+    /**
+     * Runs the task after every task previously submitted for the same conversation.
+     * Throws {@link java.util.concurrent.RejectedExecutionException} when the stripe's queue is full.
+     */
+    public void execute(Long conversationId, Runnable task) {
+        stripes[stripeOf(conversationId)].execute(guarded(conversationId, task));
+    }
+
+    /**
+     * Like {@link #execute}, but waits for room in a full stripe queue instead of rejecting, for work
+     * that must not overtake tasks already queued (completions of earlier sends). Throws
+     * {@link java.util.concurrent.RejectedExecutionException} only once the executor is shut down.
+     */
+    public void executeWhenRoom(Long conversationId, Runnable task) throws InterruptedException {
+        ThreadPoolExecutor stripe = stripes[stripeOf(conversationId)];
+        if (stripe.isShutdown()) {
+            throw new RejectedExecutionException("Conversation executor is shut down");
+        }
+        stripe.getQueue().put(guarded(conversationId, task));
+    }
+
+    private static Runnable guarded(Long conversationId, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Conversation task failed for conversation " + conversationId + ": " + e.getMessage());
+            }
+        };
+    }
+
+    public int stripeOf(Long conversationId) {
+        // Spread the hash: time-ordered ids carry node and sequence bits at the bottom
+        int hash = Long.hashCode(conversationId) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int getQueueDepth(int stripe) {
+        return stripes[stripe].getQueue().size();
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+}
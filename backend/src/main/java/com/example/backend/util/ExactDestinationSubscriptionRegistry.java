@@ -0,0 +1,160 @@
+package com.example.backend.util;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subscription registry for the simple broker tuned for many exact destinations such as
+ * {@code /topic/conversation.{id}}.
+ *
+ * Each destination maps to a concurrent session-to-subscriptions map, and a send gets a read-only
+ * view of it: a single hash lookup with no locks, no pattern matching and no per-send copy. Only the
+ * subscribing session's own (small, immutable) id list is replaced on subscribe or unsubscribe, so
+ * N members joining a destination costs O(N) rather than the O(N^2) of copying the whole map each
+ * time. A send iterates the live map and may or may not see a subscription made while it runs,
+ * which is the same guarantee a session subscribing just before or after the send would get.
+ * Subscriptions to patterns ({@code *}, {@code {var}}) or with a selector header are rare here and
+ * go to a {@link DefaultSubscriptionRegistry}, which is only consulted while it holds any.
+ */
+public class ExactDestinationSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    private static final String SELECTOR_HEADER = "selector";
+    private static final MultiValueMap<String, String> EMPTY =
+        CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    private final ConcurrentHashMap<String, Subscribers> byDestination = new ConcurrentHashMap<>();
+    // sessionId -> (subscriptionId -> destination), for unsubscribe and disconnect
+    private final ConcurrentHashMap<String, Map<String, String>> bySession = new ConcurrentHashMap<>();
+
+    private final DefaultSubscriptionRegistry patternRegistry = new DefaultSubscriptionRegistry();
+    private final AtomicInteger patternSubscriptions = new AtomicInteger();
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        if (isPattern(destination) || hasSelector(message)) {
+            patternRegistry.registerSubscription(message);
+            patternSubscriptions.incrementAndGet();
+            bySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, "");
+            return;
+        }
+        bySession.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>()).put(subscriptionId, destination);
+        // compute() holds the destination's bin lock, so adding here cannot race with the removal of an
+        // emptied destination in removeFromDestination
+        byDestination.compute(destination, (d, current) -> {
+            Subscribers subscribers = current != null ? current : new Subscribers();
+            subscribers.sessions.merge(sessionId, List.of(subscriptionId), ExactDestinationSubscriptionRegistry::append);
+            return subscribers;
+        });
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        Map<String, String> subscriptions = bySession.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination == null) {
+            return;
+        }
+        if (destination.isEmpty()) {
+            patternRegistry.unregisterSubscription(message);
+            patternSubscriptions.decrementAndGet();
+        } else {
+            removeFromDestination(destination, sessionId, subscriptionId);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        Map<String, String> subscriptions = bySession.remove(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        boolean hadPatterns = false;
+        for (Map.Entry<String, String> subscription : subscriptions.entrySet()) {
+            if (subscription.getValue().isEmpty()) {
+                hadPatterns = true;
+                patternSubscriptions.decrementAndGet();
+            } else {
+                removeFromDestination(subscription.getValue(), sessionId, subscription.getKey());
+            }
+        }
+        if (hadPatterns) {
+            patternRegistry.unregisterAllSubscriptions(sessionId);
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        Subscribers subscribers = byDestination.get(destination);
+        MultiValueMap<String, String> exact = subscribers != null ? subscribers.view : EMPTY;
+        if (patternSubscriptions.get() == 0) {
+            return exact;
+        }
+        MultiValueMap<String, String> matched = patternRegistry.findSubscriptions(message);
+        if (matched.isEmpty()) {
+            return exact;
+        }
+        LinkedMultiValueMap<String, String> merged = new LinkedMultiValueMap<>(exact.size() + matched.size());
+        exact.forEach((session, ids) -> merged.addAll(session, ids));
+        matched.forEach((session, ids) -> merged.addAll(session, ids));
+        return merged;
+    }
+
+    /**
+     * Number of exact destinations with at least one subscriber.
+     */
+    public int getDestinationCount() {
+        return byDestination.size();
+    }
+
+    private void removeFromDestination(String destination, String sessionId, String subscriptionId) {
+        byDestination.computeIfPresent(destination, (d, subscribers) -> {
+            subscribers.sessions.computeIfPresent(sessionId, (session, ids) -> {
+                if (!ids.contains(subscriptionId)) {
+                    return ids;
+                }
+                List<String> remaining = new ArrayList<>(ids);
+                remaining.remove(subscriptionId);
+                // Returning null drops the session from the destination
+                return remaining.isEmpty() ? null : List.copyOf(remaining);
+            });
+            return subscribers.sessions.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static List<String> append(List<String> ids, List<String> added) {
+        List<String> copy = new ArrayList<>(ids.size() + added.size());
+        copy.addAll(ids);
+        copy.addAll(added);
+        return List.copyOf(copy);
+    }
+
+    private static final class Subscribers {
+
+        // sessionId -> immutable list of that session's subscription ids
+        final ConcurrentHashMap<String, List<String>> sessions = new ConcurrentHashMap<>();
+        final MultiValueMap<String, String> view =
+            CollectionUtils.unmodifiableMultiValueMap(CollectionUtils.toMultiValueMap(sessions));
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('{') >= 0 || destination.indexOf('?') >= 0;
+    }
+
+    private static boolean hasSelector(Message<?> message) {
+        return SimpMessageHeaderAccessor.getFirstNativeHeader(SELECTOR_HEADER, message.getHeaders()) != null;
+    }
+}
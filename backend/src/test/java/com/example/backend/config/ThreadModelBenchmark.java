@@ -0,0 +1,94 @@
+package com.example.backend.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the two thread models on the application's real connection pool: the STOMP inbound
+ * executor that VirtualThreadConfig installs (one virtual thread per task) against a 200-thread
+ * platform pool, Tomcat's default. Each request makes one JDBC call through the context's
+ * DataSource and then blocks on other I/O for a while, such as a file write.
+ * Run with {@code ./gradlew benchmark} against a local PostgreSQL.
+ */
+@SpringBootTest(properties = {"spring.threads.virtual.enabled=true", "spring.jpa.show-sql=false"})
+@Tag("benchmark")
+public class ThreadModelBenchmark {
+
+    private static final int PLATFORM_THREADS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("clientInboundChannel")
+    private ExecutorSubscribableChannel clientInboundChannel;
+
+    private ThreadPoolTaskExecutor platformPool;
+
+    @ParameterizedTest
+    @CsvSource({"1000, 5, 0", "1000, 5, 20", "10000, 5, 0", "10000, 5, 20"})
+    public void burstOfBlockingRequests(int requests, int queryMillis, int ioMillis) throws InterruptedException {
+        platformPool = new ThreadPoolTaskExecutor();
+        platformPool.setCorePoolSize(PLATFORM_THREADS);
+        platformPool.setMaxPoolSize(PLATFORM_THREADS);
+        platformPool.setThreadNamePrefix("bench-platform-");
+        platformPool.initialize();
+
+        Executor virtualThreads = clientInboundChannel.getExecutor();
+        assertTrue(virtualThreads != null && virtualThreads.getClass().getSimpleName().startsWith("VirtualThread"),
+            "VirtualThreadConfig is not active");
+
+        long platformMillis = burst(platformPool, requests, queryMillis, ioMillis);
+        long virtualMillis = burst(virtualThreads, requests, queryMillis, ioMillis);
+        System.out.printf("requests=%6d  query=%2d ms  io=%2d ms  platform(200)=%7d ms  virtual=%7d ms%n",
+            requests, queryMillis, ioMillis, platformMillis, virtualMillis);
+    }
+
+    @AfterEach
+    public void stopPool() {
+        if (platformPool != null) {
+            platformPool.shutdown();
+        }
+    }
+
+    private long burst(Executor executor, int requests, int queryMillis, int ioMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    jdbcTemplate.queryForObject("SELECT 1 FROM pg_sleep(?)", Integer.class, queryMillis / 1000.0);
+                    if (ioMillis > 0) {
+                        Thread.sleep(ioMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.MINUTES));
+        assertEquals(0, failures.get());
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.backend.repo;
+
+import com.example.backend.config.IdGenerationConfig;
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.entity.ConversationParticipant;
+import com.example.backend.entity.Message;
+import com.example.backend.entity.User;
+import com.example.backend.service.ChatService;
+import com.example.backend.service.ConversationActivityTracker;
+import com.example.backend.service.MessageBatchWriter;
+import com.example.backend.service.RecentMessageCache;
+import com.example.backend.service.RecentSendCache;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset paging over (created_at, id). Needs the local PostgreSQL; run with ./gradlew integrationTest.
+ */
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ChatService.class, IdGenerationConfig.class})
+@Tag("integration")
+public class MessageRepositoryKeysetTest {
+
+    private static final LocalDateTime SAME_INSTANT = LocalDateTime.of(2025, 6, 1, 12, 0, 0);
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TimeOrderedIdGenerator idGenerator;
+
+    @MockitoBean
+    private MessageBatchWriter messageBatchWriter;
+
+    @MockitoBean
+    private ConversationActivityTracker activityTracker;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @MockitoBean
+    private RecentSendCache recentSends;
+
+    private Conversation conversation;
+    private User sender;
+    // Oldest first
+    private final List<Message> messages = new ArrayList<>();
+
+    @BeforeEach
+    public void createConversation() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        sender = new User("keyset-" + run + "@test.local", "x", "USER", 1);
+        entityManager.persist(sender);
+        conversation = new Conversation("keyset-" + run, true);
+        conversation.setChangeVersion(idGenerator.nextId());
+        entityManager.persist(conversation);
+        ConversationParticipant participant = new ConversationParticipant(conversation, sender, true);
+        participant.setChangeVersion(idGenerator.nextId());
+        entityManager.persist(participant);
+    }
+
+    @Test
+    public void pagesThroughEqualTimestampsWithoutSkipsOrRepeats() {
+        addMessages(7, SAME_INSTANT);
+
+        List<Long> seen = new ArrayList<>();
+        List<Message> page = messageRepository.findNewest(conversation.getId(), Limit.of(3));
+        while (!page.isEmpty()) {
+            page.forEach(m -> seen.add(m.getId()));
+            Message last = page.get(page.size() - 1);
+            page = messageRepository.findBefore(conversation.getId(), last.getCreatedAt(), last.getId(), Limit.of(3));
+        }
+
+        assertEquals(idsNewestFirst(), seen);
+    }
+
+    @Test
+    public void afterPagesAreOldestFirstAndTieBreakOnId() {
+        addMessages(5, SAME_INSTANT);
+        Message oldest = messages.get(0);
+
+        List<Message> page = messageRepository.findAfter(conversation.getId(), oldest.getCreatedAt(), oldest.getId(), Limit.of(2));
+
+        assertEquals(List.of(messages.get(1).getId(), messages.get(2).getId()), page.stream().map(Message::getId).toList());
+    }
+
+    @Test
+    public void cursorsAtEitherEndReturnNothing() {
+        addMessages(3, SAME_INSTANT.minusMinutes(3));
+        Message oldest = messages.get(0);
+        Message newest = messages.get(messages.size() - 1);
+
+        assertTrue(messageRepository.findBefore(conversation.getId(), oldest.getCreatedAt(), oldest.getId(), Limit.of(10)).isEmpty());
+        assertTrue(messageRepository.findAfter(conversation.getId(), newest.getCreatedAt(), newest.getId(), Limit.of(10)).isEmpty());
+    }
+
+    @Test
+    public void pageSizeIsCappedAtTwoHundred() {
+        addMessages(250, SAME_INSTANT.minusHours(1));
+        Message newest = messages.get(messages.size() - 1);
+
+        List<ChatMessageDTO> before = chatService.getMessages(conversation.getId(), sender.getId(), newest.getId(), null, 0, 1000);
+
+        assertEquals(200, before.size());
+        assertEquals(messages.get(messages.size() - 2).getId(), before.get(0).getId());
+    }
+
+    // Each message one second after the previous when start is not shared; SAME_INSTANT gives them all one timestamp
+    private void addMessages(int count, LocalDateTime start) {
+        for (int i = 0; i < count; i++) {
+            Message message = new Message(conversation, sender, "message " + i);
+            message.setSeq((long) messages.size() + 1);
+            message.setCreatedAt(start.equals(SAME_INSTANT) ? SAME_INSTANT : start.plusSeconds(i));
+            entityManager.persist(message);
+            messages.add(message);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<Long> idsNewestFirst() {
+        List<Long> ids = new ArrayList<>(messages.stream().map(Message::getId).toList());
+        Collections.reverse(ids);
+        return ids;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.security;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "5E74227669796A5242556D587135743877217A25432A462D4A614E645267556B";
+
+    @Test
+    public void verifyReturnsAllClaimsFromOneParse() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        String token = jwtUtil.generateToken(7L, "user@chatme.com", "USER", 1);
+
+        VerifiedToken verified = jwtUtil.verify(token);
+
+        assertEquals(7L, verified.getUserId());
+        assertEquals("user@chatme.com", verified.getEmail());
+        assertEquals("USER", verified.getRole());
+        assertEquals(1, verified.getPrivilegeLevel());
+    }
+
+    @Test
+    public void verifiedTokensAreServedFromCache() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        String token = jwtUtil.generateToken(7L, "user@chatme.com", "USER", 1);
+
+        assertSame(jwtUtil.verify(token), jwtUtil.verify(token));
+    }
+
+    @Test
+    public void tamperedTokensAreRejected() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        String token = jwtUtil.generateToken(7L, "user@chatme.com", "USER", 1);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+    }
+
+    @Test
+    public void expiredTokensAreRejected() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, -1_000L, 100);
+        String token = jwtUtil.generateToken(7L, "user@chatme.com", "USER", 1);
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(token));
+    }
+
+    @Test
+    public void cacheStaysBounded() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            cache.put("key-" + i, new VerifiedToken((long) i, "u" + i, "USER", 1, now + 60_000), now);
+        }
+
+        assertTrue(cache.size() <= 10);
+    }
+}
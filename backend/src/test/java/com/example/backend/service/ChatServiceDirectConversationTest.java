@@ -0,0 +1,86 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ConversationDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.repo.ConversationRepository;
+import com.example.backend.repo.MessageRepository;
+import com.example.backend.repo.UserRepository;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatServiceDirectConversationTest {
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private ConversationParticipantRepository participantRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ConversationActivityTracker activityTracker;
+
+    @Spy
+    private TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(0);
+
+    @InjectMocks
+    private ChatService chatService;
+
+    @Test
+    public void existingPairIsFoundWithCanonicalKeyInEitherOrder() {
+        when(conversationRepository.findDirectConversation(3L, 7L)).thenReturn(Optional.of(direct(100L)));
+
+        assertEquals(100L, chatService.createDirectConversation(7L, 3L).getId());
+        assertEquals(100L, chatService.createDirectConversation(3L, 7L).getId());
+        verify(conversationRepository, never()).insertDirectConversationIfAbsent(anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void losingTheCreateRaceReturnsTheWinningConversation() {
+        when(conversationRepository.findDirectConversation(3L, 7L))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(direct(200L)));
+        when(userRepository.findExistingIds(anyCollection())).thenReturn(List.of(3L, 7L));
+        when(conversationRepository.insertDirectConversationIfAbsent(anyLong(), eq(3L), eq(7L), any())).thenReturn(0);
+
+        ConversationDTO conversation = chatService.createDirectConversation(7L, 3L);
+
+        assertEquals(200L, conversation.getId());
+        assertFalse(conversation.isCreated());
+        verify(participantRepository, never()).saveAll(anyIterable());
+    }
+
+    private static Conversation direct(Long id) {
+        Conversation conversation = new Conversation(null, false);
+        conversation.setId(id);
+        conversation.setDirectUserLow(3L);
+        conversation.setDirectUserHigh(7L);
+        return conversation;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.entity.ConversationParticipant;
+import com.example.backend.entity.Message;
+import com.example.backend.entity.User;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.repo.ConversationRepository;
+import com.example.backend.repo.MessageRepository;
+import com.example.backend.repo.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatServiceIdempotentSendTest {
+
+    private static final Long CONVERSATION_ID = 5L;
+    private static final Long SENDER_ID = 42L;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private ConversationParticipantRepository participantRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ConversationActivityTracker activityTracker;
+
+    @Mock
+    private MessageBatchWriter messageBatchWriter;
+
+    @Mock
+    private RecentMessageCache recentMessageCache;
+
+    @Spy
+    private RecentSendCache recentSends = new RecentSendCache(60_000, 100);
+
+    @InjectMocks
+    private ChatService chatService;
+
+    private Conversation conversation;
+    private User sender;
+
+    @BeforeEach
+    public void setUp() {
+        conversation = new Conversation("Group", true);
+        conversation.setId(CONVERSATION_ID);
+        sender = new User();
+        sender.setEmail("sender@example.com");
+        when(conversationRepository.findById(CONVERSATION_ID)).thenReturn(Optional.of(conversation));
+        when(userRepository.findById(SENDER_ID)).thenReturn(Optional.of(sender));
+        when(participantRepository.findByConversationIdAndUserId(CONVERSATION_ID, SENDER_ID))
+            .thenReturn(Optional.of(new ConversationParticipant(conversation, sender, false)));
+    }
+
+    @Test
+    public void retryWithTheSameKeyReturnsTheOriginalWithoutWriting() {
+        when(messageBatchWriter.write(any(Message.class))).thenAnswer(invocation -> stored(invocation.getArgument(0), 100L));
+
+        ChatMessageDTO first = chatService.sendMessageAsync(CONVERSATION_ID, SENDER_ID, "hi", "TEXT", "k-1").join();
+        ChatMessageDTO retry = chatService.sendMessageAsync(CONVERSATION_ID, SENDER_ID, "hi", "TEXT", "k-1").join();
+
+        assertEquals(100L, first.getId());
+        assertEquals("k-1", first.getClientMessageId());
+        assertEquals(first.getId(), retry.getId());
+        assertFalse(first.isDuplicate());
+        assertTrue(retry.isDuplicate());
+        verify(messageBatchWriter, times(1)).write(any(Message.class));
+        // No lookup ahead of the insert; the unique index catches retries outside the dedup window
+        verify(messageRepository, never()).findBySenderIdAndClientMessageId(anyLong(), anyString());
+    }
+
+    @Test
+    public void losingTheUniqueIndexRaceReturnsTheStoredMessage() {
+        Message winner = stored(new Message(conversation, sender, "hi"), 200L);
+        winner.setClientMessageId("k-2");
+        when(messageRepository.findBySenderIdAndClientMessageId(SENDER_ID, "k-2")).thenReturn(Optional.of(winner));
+        when(messageBatchWriter.write(any(Message.class))).thenThrow(new DuplicateKeyException("duplicate"));
+
+        ChatMessageDTO result = chatService.sendMessageAsync(CONVERSATION_ID, SENDER_ID, "hi", "TEXT", "k-2").join();
+
+        assertEquals(200L, result.getId());
+        assertTrue(result.isDuplicate());
+        // The winner already recorded its activity; the duplicate must not count again
+        verify(activityTracker, never()).recordMessage(anyLong(), anyLong(), any());
+    }
+
+    private static Message stored(Message message, Long id) {
+        message.setId(id);
+        message.setSeq(1L);
+        return message;
+    }
+}
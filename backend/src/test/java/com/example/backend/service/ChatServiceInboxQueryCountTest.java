@@ -0,0 +1,107 @@
+package com.example.backend.service;
+
+import com.example.backend.config.IdGenerationConfig;
+import com.example.backend.dto.ConversationDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.entity.ConversationParticipant;
+import com.example.backend.entity.Message;
+import com.example.backend.entity.User;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SQL statements Hibernate prepares while building an inbox, so lazy loads and N+1
+ * queries inside the DTO mapping show up. Needs the local PostgreSQL; run with ./gradlew integrationTest.
+ */
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ChatService.class, IdGenerationConfig.class})
+@Tag("integration")
+public class ChatServiceInboxQueryCountTest {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TimeOrderedIdGenerator idGenerator;
+
+    @MockitoBean
+    private MessageBatchWriter messageBatchWriter;
+
+    @MockitoBean
+    private ConversationActivityTracker activityTracker;
+
+    @MockitoBean
+    private RecentMessageCache recentMessageCache;
+
+    @MockitoBean
+    private RecentSendCache recentSends;
+
+    @Test
+    public void inboxStatementCountDoesNotGrowWithConversationCount() {
+        assertEquals(4, countStatements(1));
+        assertEquals(4, countStatements(10));
+        assertEquals(4, countStatements(100));
+    }
+
+    private long countStatements(int conversationCount) {
+        User user = createInbox(conversationCount);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        List<ConversationDTO> inbox = chatService.getUserConversations(user.getId());
+
+        assertEquals(conversationCount, inbox.size());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private User createInbox(int conversationCount) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User("inbox-" + run + "@test.local", "x", "USER", 1);
+        User other = new User("inbox-" + run + "-other@test.local", "x", "USER", 1);
+        entityManager.persist(user);
+        entityManager.persist(other);
+
+        for (int i = 0; i < conversationCount; i++) {
+            Conversation conversation = new Conversation("Group " + i, true);
+            conversation.setChangeVersion(idGenerator.nextId());
+            entityManager.persist(conversation);
+            entityManager.persist(participant(conversation, user, true));
+            entityManager.persist(participant(conversation, other, false));
+            for (long seq = 1; seq <= 2; seq++) {
+                Message message = new Message(conversation, other, "message " + seq);
+                message.setSeq(seq);
+                entityManager.persist(message);
+            }
+        }
+        return user;
+    }
+
+    private ConversationParticipant participant(Conversation conversation, User user, boolean isAdmin) {
+        ConversationParticipant participant = new ConversationParticipant(conversation, user, isAdmin);
+        participant.setChangeVersion(idGenerator.nextId());
+        return participant;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ConversationDTO;
+import com.example.backend.dto.ConversationSyncDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.repo.ConversationRepository;
+import com.example.backend.repo.MessageRepository;
+import com.example.backend.repo.UserRepository;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatServiceInboxTest {
+
+    private static final Long USER_ID = 42L;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private ConversationParticipantRepository participantRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ConversationActivityTracker activityTracker;
+
+    @Spy
+    private TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator(0);
+
+    @InjectMocks
+    private ChatService chatService;
+
+    @Test
+    public void inboxBuildsOneDtoPerConversationWithGroupedUnreadCounts() {
+        List<Conversation> conversations = conversations(3);
+        when(conversationRepository.findByUserId(USER_ID)).thenReturn(conversations);
+        when(participantRepository.findWithUserByConversationIdIn(anyCollection())).thenReturn(new ArrayList<>());
+        when(messageRepository.findLatestMessagesByConversationIds(anyCollection())).thenReturn(new ArrayList<>());
+        List<Object[]> unread = new ArrayList<>();
+        unread.add(new Object[]{2L, 5L});
+        when(messageRepository.countUnreadMessagesByConversationIds(anyCollection(), anyLong())).thenReturn(unread);
+
+        List<ConversationDTO> inbox = chatService.getUserConversations(USER_ID);
+
+        assertEquals(3, inbox.size());
+        assertEquals(0L, inbox.get(0).getUnreadCount());
+        assertEquals(5L, inbox.get(1).getUnreadCount());
+        assertEquals(0L, inbox.get(2).getUnreadCount());
+    }
+
+    @Test
+    public void unflushedActivityMovesConversationToTheTop() {
+        List<Conversation> conversations = conversations(3);
+        when(conversationRepository.findByUserId(USER_ID)).thenReturn(conversations);
+        when(activityTracker.pending(3L)).thenReturn(
+            new ConversationActivityTracker.Activity(99L, LocalDateTime.now().plusMinutes(1), 1));
+
+        List<ConversationDTO> inbox = chatService.getUserConversations(USER_ID);
+
+        assertEquals(3L, inbox.get(0).getId());
+    }
+
+    @Test
+    public void syncWithNothingChangedIsTwoQueriesAndNoDtoWork() {
+        long since = idGenerator.nextId();
+        when(conversationRepository.findChangedForUser(anyLong(), anyLong())).thenReturn(new ArrayList<>());
+        when(participantRepository.findRemovedConversationIds(anyLong(), anyLong())).thenReturn(new ArrayList<>());
+
+        ConversationSyncDTO sync = chatService.syncConversations(USER_ID, since);
+
+        assertFalse(sync.getFull());
+        assertTrue(sync.getConversations().isEmpty());
+        assertTrue(sync.getVersion() > since);
+        assertEquals(2, mockingDetails(conversationRepository).getInvocations().size()
+            + mockingDetails(participantRepository).getInvocations().size()
+            + mockingDetails(messageRepository).getInvocations().size());
+    }
+
+    @Test
+    public void syncReturnsChangedConversationsAndTombstones() {
+        when(conversationRepository.findChangedForUser(anyLong(), anyLong())).thenReturn(conversations(1));
+        when(participantRepository.findRemovedConversationIds(anyLong(), anyLong())).thenReturn(List.of(9L));
+
+        ConversationSyncDTO sync = chatService.syncConversations(USER_ID, idGenerator.nextId());
+
+        assertEquals(1, sync.getConversations().size());
+        assertEquals(List.of(9L), sync.getRemovedConversationIds());
+    }
+
+    private List<Conversation> conversations(int count) {
+        List<Conversation> conversations = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Conversation conversation = new Conversation("Group " + i, true);
+            conversation.setId((long) i);
+            conversations.add(conversation);
+        }
+        return conversations;
+    }
+}
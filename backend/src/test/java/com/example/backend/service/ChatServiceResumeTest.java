@@ -0,0 +1,119 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.entity.Conversation;
+import com.example.backend.entity.Message;
+import com.example.backend.entity.User;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.repo.MessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ChatServiceResumeTest {
+
+    private static final Long USER_ID = 42L;
+
+    @Mock
+    private ConversationParticipantRepository participantRepository;
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private RecentMessageCache recentMessageCache;
+
+    @InjectMocks
+    private ChatService chatService;
+
+    @Test
+    public void cacheAnswerReachingTheLastSeqIsUsed() {
+        lastSeqs(new Object[]{1L, 7L});
+        when(recentMessageCache.getAfterSeq(1L, 5L, 200)).thenReturn(List.of(dto(1L, 6L), dto(1L, 7L)));
+
+        Map<Long, List<ChatMessageDTO>> missed = chatService.resumeMessages(USER_ID, Map.of(1L, 5L));
+
+        assertEquals(List.of(6L, 7L), seqs(missed.get(1L)));
+        verify(messageRepository, never()).findAfterSeq(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    public void shortCacheAnswerFallsBackToTheDatabase() {
+        // Seq 8 is committed but not appended to this node's cache yet
+        lastSeqs(new Object[]{1L, 8L});
+        when(recentMessageCache.getAfterSeq(1L, 5L, 200)).thenReturn(List.of(dto(1L, 6L), dto(1L, 7L)));
+        when(messageRepository.findAfterSeq(1L, 5L, Limit.of(200)))
+            .thenReturn(List.of(message(1L, 6L), message(1L, 7L), message(1L, 8L)));
+
+        Map<Long, List<ChatMessageDTO>> missed = chatService.resumeMessages(USER_ID, Map.of(1L, 5L));
+
+        assertEquals(List.of(6L, 7L, 8L), seqs(missed.get(1L)));
+    }
+
+    @Test
+    public void emptyCacheAnswerBehindTheLastSeqFallsBackToTheDatabase() {
+        lastSeqs(new Object[]{1L, 3L});
+        when(recentMessageCache.getAfterSeq(1L, 0L, 200)).thenReturn(List.of());
+        when(messageRepository.findAfterSeq(1L, 0L, Limit.of(200)))
+            .thenReturn(List.of(message(1L, 1L), message(1L, 2L), message(1L, 3L)));
+
+        Map<Long, List<ChatMessageDTO>> missed = chatService.resumeMessages(USER_ID, Map.of(1L, 0L));
+
+        assertEquals(List.of(1L, 2L, 3L), seqs(missed.get(1L)));
+    }
+
+    @Test
+    public void upToDateConversationsAreSkippedWithoutReading() {
+        // NULL last_message_seq: no message has been numbered yet
+        lastSeqs(new Object[]{1L, 4L}, new Object[]{2L, null});
+
+        Map<Long, List<ChatMessageDTO>> missed = chatService.resumeMessages(USER_ID, Map.of(1L, 4L, 2L, 0L));
+
+        assertTrue(missed.isEmpty());
+        verify(recentMessageCache, never()).getAfterSeq(anyLong(), anyLong(), anyInt());
+        verify(messageRepository, never()).findAfterSeq(anyLong(), anyLong(), any());
+    }
+
+    private void lastSeqs(Object[]... rows) {
+        List<Object[]> result = new ArrayList<>(List.of(rows));
+        when(participantRepository.findLastMessageSeqsForMember(eq(USER_ID), any())).thenReturn(result);
+    }
+
+    private static List<Long> seqs(List<ChatMessageDTO> messages) {
+        return messages.stream().map(ChatMessageDTO::getSeq).toList();
+    }
+
+    private static ChatMessageDTO dto(Long conversationId, Long seq) {
+        ChatMessageDTO dto = new ChatMessageDTO();
+        dto.setConversationId(conversationId);
+        dto.setSeq(seq);
+        return dto;
+    }
+
+    private static Message message(Long conversationId, Long seq) {
+        Conversation conversation = new Conversation(null, false);
+        conversation.setId(conversationId);
+        Message message = new Message(conversation, new User(), "m" + seq);
+        message.setId(1000L + seq);
+        message.setSeq(seq);
+        return message;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.backend.service;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.security.JwtUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.SimpleMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts two application nodes in one JVM with {@code chat.broker.mode=postgres} and checks that a
+ * broadcast made on one node reaches a STOMP subscriber connected to the other.
+ * Needs the local PostgreSQL from application.properties; run with ./gradlew integrationTest.
+ */
+@Tag("integration")
+public class ClusterFanOutIntegrationTest {
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+    private WebSocketStompClient stompClient;
+
+    @AfterEach
+    public void stopNodes() {
+        if (stompClient != null) {
+            stompClient.stop();
+        }
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    public void broadcastOnOneNodeReachesSubscriberOnTheOther() throws Exception {
+        nodeA = startNode(1);
+        nodeB = startNode(2);
+
+        Long conversationId = System.currentTimeMillis();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompSession session = connect(nodeB);
+        session.subscribe("/topic/conversation." + conversationId, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add(new String((byte[]) payload, StandardCharsets.UTF_8));
+            }
+        });
+
+        ChatMessageDTO message = new ChatMessageDTO(1L, conversationId, 1L, "a@example.com",
+            "hello from node A", "TEXT", "2025-01-01T00:00:00", false);
+        ConversationBroadcaster broadcasterA = nodeA.getBean(ConversationBroadcaster.class);
+
+        // The subscription is registered asynchronously; publish until node B has delivered once
+        String delivered = null;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(15);
+        while (delivered == null && System.currentTimeMillis() < deadline) {
+            broadcasterA.broadcastMessage(message);
+            delivered = received.poll(500, TimeUnit.MILLISECONDS);
+        }
+
+        assertNotNull(delivered, "node B subscriber did not receive node A's broadcast");
+        assertTrue(delivered.contains("hello from node A"));
+    }
+
+    private static ConfigurableApplicationContext startNode(int nodeId) {
+        return new SpringApplicationBuilder(BackendApplication.class)
+            .properties(
+                "server.port=0",
+                "chat.broker.mode=postgres",
+                "chat.id.node-id=" + nodeId,
+                "chat.message-cache.enabled=false"
+            )
+            .run();
+    }
+
+    private StompSession connect(ConfigurableApplicationContext node) throws Exception {
+        String port = node.getEnvironment().getProperty("local.server.port");
+        String token = node.getBean(JwtUtil.class).generateToken(1L, "b@example.com", "USER", 1);
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new SimpleMessageConverter());
+
+        WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+        handshakeHeaders.setOrigin("http://localhost:3000");
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + token);
+
+        return stompClient.connectAsync("ws://localhost:" + port + "/ws/websocket", handshakeHeaders,
+                connectHeaders, new StompSessionHandlerAdapter() {})
+            .get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.backend.service;
+
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConversationActivityTrackerTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ConversationActivityTracker tracker = tracker();
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void flushMergesActivityIntoOneBatchedUpdateInRowOrder() {
+        tracker.recordMessage(9L, 101L, T0);
+        tracker.recordMessage(3L, 102L, T0.plusSeconds(1));
+        tracker.recordMessage(9L, 103L, T0.plusSeconds(2));
+        tracker.recordMessage(9L, 100L, T0.plusSeconds(3));
+
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        List<Object[]> args = rows.getValue();
+        assertEquals(2, args.size());
+        // Ascending conversation id: [last message id, last activity, count, change version, id]
+        assertEquals(3L, args.get(0)[4]);
+        assertEquals(9L, args.get(1)[4]);
+        assertEquals(103L, args.get(1)[0]);
+        assertEquals(3L, args.get(1)[2]);
+        assertEquals(args.get(0)[3], args.get(1)[3]);
+        assertNull(tracker.pending(9L));
+
+        tracker.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void failedFlushIsRetriedWithoutCountingMessagesTwice() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new IllegalStateException("deadlock detected"))
+            .thenReturn(new int[]{1});
+        tracker.recordMessage(5L, 1L, T0);
+        tracker.recordMessage(5L, 2L, T0.plusSeconds(1));
+
+        tracker.flush();
+        assertEquals(2, tracker.pending(5L).getMessageCount());
+
+        tracker.recordMessage(5L, 3L, T0.plusSeconds(2));
+        tracker.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        Object[] retried = rows.getAllValues().get(1).get(0);
+        assertEquals(3L, retried[0]);
+        assertEquals(3L, retried[2]);
+        assertNull(tracker.pending(5L));
+    }
+
+    @Test
+    public void pendingCombinesInFlightAndQueuedActivity() {
+        List<ConversationActivityTracker.Activity> seenDuringFlush = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            // A message persisted while the UPDATE runs is queued for the next flush
+            tracker.recordMessage(7L, 20L, T0.plusSeconds(5));
+            seenDuringFlush.add(tracker.pending(7L));
+            return new int[]{1};
+        });
+        tracker.recordMessage(7L, 10L, T0);
+
+        tracker.flush();
+
+        ConversationActivityTracker.Activity during = seenDuringFlush.get(0);
+        assertEquals(20L, during.getLastMessageId());
+        assertEquals(T0.plusSeconds(5), during.getLastActivityAt());
+        assertEquals(2, during.getMessageCount());
+        // After the commit only the queued message remains
+        assertEquals(1, tracker.pending(7L).getMessageCount());
+    }
+
+    @Test
+    public void nothingRecordedMeansNoTransaction() {
+        tracker.flush();
+
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    private ConversationActivityTracker tracker() {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        return new ConversationActivityTracker(jdbcTemplate, transactionManager, new TimeOrderedIdGenerator(0));
+    }
+}
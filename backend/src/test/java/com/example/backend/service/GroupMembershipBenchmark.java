@@ -0,0 +1,81 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ConversationDTO;
+import com.example.backend.entity.User;
+import com.example.backend.repo.ConversationRepository;
+import com.example.backend.repo.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures group creation and bulk membership against a real database.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@Tag("benchmark")
+public class GroupMembershipBenchmark {
+
+    @Autowired
+    private ChatService chatService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<Long> conversationIds = new ArrayList<>();
+    private String run;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 100, 1_000, 10_000})
+    public void createGroupAndBulkAdd(int members) {
+        run = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i <= members * 2; i++) {
+            users.add(new User("bench-" + run + "-" + i + "@bench.local", "x", "USER", 1));
+        }
+        userRepository.saveAll(users);
+
+        Long creatorId = users.get(0).getId();
+        List<Long> firstHalf = users.subList(1, members + 1).stream().map(User::getId).toList();
+        List<Long> secondHalf = users.subList(members + 1, users.size()).stream().map(User::getId).toList();
+
+        long start = System.nanoTime();
+        ConversationDTO group = chatService.createGroupConversation("bench-" + run, firstHalf, creatorId);
+        long created = System.nanoTime();
+        List<Long> added = chatService.addParticipants(group.getId(), secondHalf, creatorId);
+        long end = System.nanoTime();
+        conversationIds.add(group.getId());
+
+        assertEquals(members + 1, group.getParticipants().size());
+        assertEquals(members, added.size());
+        System.out.printf("members=%6d  createGroup=%8.1f ms  bulkAdd=%8.1f ms%n",
+            members, (created - start) / 1e6, (end - created) / 1e6);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        conversationRepository.deleteAllById(conversationIds);
+        // One range delete on idx_users_email_prefix instead of a DELETE with one OR term per user
+        if (run != null) {
+            jdbcTemplate.update("DELETE FROM users WHERE lower(email) LIKE ?", "bench-" + run + "-%");
+        }
+        conversationIds.clear();
+        users.clear();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.InboxEventDTO;
+import com.example.backend.entity.User;
+import com.example.backend.repo.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InboxEventPublisherTest {
+
+    private final ConversationBroadcaster broadcaster = mock(ConversationBroadcaster.class);
+    private final ConversationMembershipCache membershipCache = mock(ConversationMembershipCache.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final InboxEventPublisher publisher = new InboxEventPublisher(broadcaster, membershipCache, userRepository);
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void messageIsOnePayloadForOthersAndOneForTheSender() {
+        when(membershipCache.members(1L)).thenReturn(List.of(
+            new ConversationMembershipCache.Member(10L, "alice@example.com"),
+            new ConversationMembershipCache.Member(11L, "bob@example.com"),
+            new ConversationMembershipCache.Member(12L, "carol@example.com")));
+        ChatMessageDTO message = new ChatMessageDTO(100L, 1L, 10L, "alice@example.com",
+            "x".repeat(500), "TEXT", "2025-01-01T00:00:00", false);
+
+        publisher.messageSent(message);
+
+        ArgumentCaptor<Collection<String>> users = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<InboxEventDTO> events = ArgumentCaptor.forClass(InboxEventDTO.class);
+        verify(broadcaster, times(2)).sendToUsers(users.capture(), eq(InboxEventPublisher.INBOX_QUEUE), events.capture());
+        assertEquals(List.of("bob@example.com", "carol@example.com"), users.getAllValues().get(0));
+        assertEquals(1, events.getAllValues().get(0).getUnreadDelta());
+        assertEquals(List.of("alice@example.com"), users.getAllValues().get(1));
+        assertEquals(0, events.getAllValues().get(1).getUnreadDelta());
+        assertEquals(InboxEventPublisher.PREVIEW_LENGTH, events.getValue().getLastMessage().getContent().length());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void membershipChangeTellsJoinedLeftAndRemainingMembers() {
+        when(membershipCache.members(1L)).thenReturn(List.of(
+            new ConversationMembershipCache.Member(10L, "alice@example.com"),
+            new ConversationMembershipCache.Member(11L, "bob@example.com")));
+        User removed = new User();
+        removed.setEmail("carol@example.com");
+        when(userRepository.findAllById(anyCollection())).thenReturn(List.of(removed));
+
+        publisher.membershipChanged(1L, List.of(11L), List.of(12L));
+
+        verify(membershipCache).invalidate(1L);
+        ArgumentCaptor<Collection<String>> users = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<InboxEventDTO> events = ArgumentCaptor.forClass(InboxEventDTO.class);
+        verify(broadcaster, times(3)).sendToUsers(users.capture(), eq(InboxEventPublisher.INBOX_QUEUE), events.capture());
+        assertEquals(List.of("bob@example.com"), users.getAllValues().get(0));
+        assertEquals("JOINED", events.getAllValues().get(0).getType());
+        assertEquals(List.of("carol@example.com"), users.getAllValues().get(1));
+        assertEquals("LEFT", events.getAllValues().get(1).getType());
+        assertEquals(List.of("alice@example.com"), users.getAllValues().get(2));
+        assertEquals("UPDATED", events.getAllValues().get(2).getType());
+    }
+}
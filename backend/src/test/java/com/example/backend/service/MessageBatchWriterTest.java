@@ -0,0 +1,268 @@
+package com.example.backend.service;
+
+import com.example.backend.entity.Conversation;
+import com.example.backend.entity.Message;
+import com.example.backend.entity.User;
+import com.example.backend.util.ConversationStripedExecutor;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MessageBatchWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final List<ConversationStripedExecutor> executors = new ArrayList<>();
+    private final List<MessageBatchWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        for (MessageBatchWriter writer : writers) {
+            writer.stop();
+        }
+        executors.forEach(ConversationStripedExecutor::shutdown);
+    }
+
+    @Test
+    public void messagesWithinOneWindowShareOneInsert() {
+        allocateSeqsFrom(0);
+        MessageBatchWriter writer = startedWriter(200, 500, 100);
+
+        List<CompletableFuture<Message>> futures = List.of(
+            writer.submit(message(1L, "a")), writer.submit(message(1L, "b")), writer.submit(message(2L, "c")));
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(List.of(3), insertedRowCounts());
+        futures.forEach(future -> assertTrue(future.join().getId() != null));
+    }
+
+    @Test
+    public void fullBatchIsWrittenWithoutWaitingForTheWindow() {
+        allocateSeqsFrom(0);
+        MessageBatchWriter writer = startedWriter(200, 2, 100);
+
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(writer.submit(message(1L, "m" + i)));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        assertEquals(List.of(2, 2, 1), insertedRowCounts());
+    }
+
+    @Test
+    public void failedBatchIsRetriedRowByRowSoOnlyTheBadRowFails() {
+        allocateSeqsFrom(0);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            Object[] args = invocation.getArgument(1);
+            if (Arrays.asList(args).contains("bad")) {
+                throw new IllegalStateException("constraint violated");
+            }
+            return args.length / 14;
+        });
+        MessageBatchWriter writer = startedWriter(200, 500, 100);
+
+        CompletableFuture<Message> good = writer.submit(message(1L, "good"));
+        CompletableFuture<Message> bad = writer.submit(message(1L, "bad"));
+        CompletableFuture<Message> alsoGood = writer.submit(message(1L, "also good"));
+
+        assertEquals("good", good.join().getContent());
+        assertEquals("also good", alsoGood.join().getContent());
+        CompletionException failure = assertThrows(CompletionException.class, bad::join);
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        // One batch attempt, then each of the three rows on its own
+        assertEquals(List.of(3, 1, 1, 1), insertedRowCounts());
+    }
+
+    @Test
+    public void fullQueueAndStoppedWriterAreOverloaded() throws Exception {
+        allocateSeqsFrom(0);
+        CountDownLatch inInsert = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockInsertsUntil(inInsert, release);
+        MessageBatchWriter writer = startedWriter(0, 500, 1);
+
+        CompletableFuture<Message> first = writer.submit(message(1L, "taken by the writer"));
+        assertTrue(inInsert.await(5, TimeUnit.SECONDS));
+        writer.submit(message(1L, "queued"));
+
+        ChatException full = assertThrows(ChatException.class, () -> writer.submit(message(1L, "rejected")));
+        assertEquals(ChatErrorCode.OVERLOADED, full.getCode());
+
+        release.countDown();
+        first.join();
+        writer.stop();
+        ChatException stopped = assertThrows(ChatException.class, () -> writer.submit(message(1L, "too late")));
+        assertEquals(ChatErrorCode.OVERLOADED, stopped.getCode());
+    }
+
+    @Test
+    public void stopWritesEverythingStillQueued() throws Exception {
+        allocateSeqsFrom(0);
+        CountDownLatch inInsert = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockInsertsUntil(inInsert, release);
+        MessageBatchWriter writer = startedWriter(0, 500, 100);
+
+        CompletableFuture<Message> first = writer.submit(message(1L, "in flight"));
+        assertTrue(inInsert.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Message> second = writer.submit(message(1L, "queued 1"));
+        CompletableFuture<Message> third = writer.submit(message(1L, "queued 2"));
+
+        Thread stopper = new Thread(() -> {
+            try {
+                writer.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stopper.start();
+        // stop() has flagged the writer and interrupted it; the in-flight batch still commits
+        Thread.sleep(100);
+        release.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(stopper.isAlive());
+        first.join();
+        second.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void seqsAreAllocatedPerConversationWithinOneBatch() {
+        // Conversation 1 gets two messages (seqs 11, 12), conversation 2 one (seq 5)
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2), eq(1L))).thenReturn(List.of(12L));
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1), eq(2L))).thenReturn(List.of(5L));
+        MessageBatchWriter writer = startedWriter(200, 500, 100);
+
+        CompletableFuture<Message> a = writer.submit(message(1L, "a"));
+        CompletableFuture<Message> b = writer.submit(message(2L, "b"));
+        CompletableFuture<Message> c = writer.submit(message(1L, "c"));
+
+        assertEquals(11L, a.join().getSeq());
+        assertEquals(5L, b.join().getSeq());
+        assertEquals(12L, c.join().getSeq());
+        assertEquals(List.of(3), insertedRowCounts());
+    }
+
+    @Test
+    public void completionWaitsForRoomOnAFullStripeInsteadOfOvertaking() throws Exception {
+        allocateSeqsFrom(0);
+        ConversationStripedExecutor stripes = executor(1);
+        CountDownLatch stripeStarted = new CountDownLatch(1);
+        CountDownLatch stripeBusy = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        stripes.execute(1L, () -> {
+            stripeStarted.countDown();
+            await(stripeBusy);
+        });
+        assertTrue(stripeStarted.await(5, TimeUnit.SECONDS));
+        // Fills the stripe's one-slot queue
+        stripes.execute(1L, () -> order.add("earlier task"));
+        MessageBatchWriter writer = writer(0, 500, 100, stripes);
+        writer.start();
+
+        CompletableFuture<Message> sent = writer.submit(message(1L, "hi"));
+        CompletableFuture<Void> completed = sent.thenRun(() -> order.add("completion"));
+        Thread.sleep(200);
+        assertFalse(sent.isDone());
+
+        stripeBusy.countDown();
+        completed.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("earlier task", "completion"), order);
+    }
+
+    private MessageBatchWriter startedWriter(long windowMillis, int maxBatchSize, int queueCapacity) {
+        MessageBatchWriter writer = writer(windowMillis, maxBatchSize, queueCapacity, executor(100));
+        writer.start();
+        return writer;
+    }
+
+    private MessageBatchWriter writer(long windowMillis, int maxBatchSize, int queueCapacity,
+                                      ConversationStripedExecutor callbackExecutor) {
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        MessageBatchWriter writer = new MessageBatchWriter(jdbcTemplate, transactionManager, true, windowMillis,
+            maxBatchSize, queueCapacity, callbackExecutor, new TimeOrderedIdGenerator(0));
+        writers.add(writer);
+        return writer;
+    }
+
+    private ConversationStripedExecutor executor(int queueCapacity) {
+        ConversationStripedExecutor executor = new ConversationStripedExecutor(1, queueCapacity, Thread.ofPlatform().factory());
+        executors.add(executor);
+        return executor;
+    }
+
+    // Every conversation's seq counter answers as if it started at the given value
+    private void allocateSeqsFrom(long start) {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any())).thenAnswer(invocation ->
+            List.of(start + (Integer) invocation.getArgument(2)));
+    }
+
+    private void blockInsertsUntil(CountDownLatch inInsert, CountDownLatch release) {
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            inInsert.countDown();
+            await(release);
+            return 1;
+        });
+    }
+
+    private List<Integer> insertedRowCounts() {
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, atLeastOnce()).update(anyString(), args.capture());
+        List<Integer> rows = new ArrayList<>();
+        for (Object[] call : args.getAllValues()) {
+            rows.add(call.length / 14);
+        }
+        return rows;
+    }
+
+    // Ignores interrupts, like a JDBC call that is already on the wire
+    private static void await(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Message message(Long conversationId, String content) {
+        Conversation conversation = new Conversation(null, false);
+        conversation.setId(conversationId);
+        User sender = new User();
+        return new Message(conversation, sender, content);
+    }
+}
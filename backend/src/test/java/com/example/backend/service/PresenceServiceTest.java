@@ -0,0 +1,95 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.PresenceDTO;
+import com.example.backend.repo.ConversationParticipantRepository;
+import com.example.backend.security.AuthenticatedUser;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PresenceServiceTest {
+
+    private static final AuthenticatedUser ALICE = new AuthenticatedUser(1L, "alice@example.com", "USER");
+    private static final AuthenticatedUser BOB = new AuthenticatedUser(2L, "bob@example.com", "USER");
+
+    private final ConversationParticipantRepository participantRepository = mock(ConversationParticipantRepository.class);
+    private final ConversationBroadcaster broadcaster = mock(ConversationBroadcaster.class);
+    private final PresenceService presence = new PresenceService(participantRepository, broadcaster);
+
+    @Test
+    public void userStaysOnlineUntilTheLastSessionCloses() {
+        connect("s1", ALICE);
+        connect("s2", ALICE);
+        disconnect("s1", ALICE);
+
+        assertTrue(presence.isOnline(1L));
+        assertEquals(1, presence.getSessionCount());
+
+        disconnect("s2", ALICE);
+        assertFalse(presence.isOnline(1L));
+        assertEquals(0, presence.getOnlineUserCount());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void transitionsAreBatchedToOnlineContacts() {
+        List<Object[]> contacts = new ArrayList<>();
+        contacts.add(new Object[]{1L, 2L, "bob@example.com"});
+        when(participantRepository.findOnlineContactsOfUsers(anyCollection(), any())).thenReturn(contacts);
+
+        connect("b1", BOB);
+        presence.flush();
+        connect("a1", ALICE);
+        presence.flush();
+
+        ArgumentCaptor<List<PresenceDTO>> updates = ArgumentCaptor.forClass(List.class);
+        verify(broadcaster).sendToLocalUser(eq("bob@example.com"), eq("/queue/presence"), updates.capture());
+        assertEquals(1, updates.getValue().size());
+        assertEquals(1L, updates.getValue().get(0).getUserId());
+        assertTrue(updates.getValue().get(0).getOnline());
+    }
+
+    @Test
+    public void reconnectWithinOneIntervalIsNotAnnounced() {
+        connect("a1", ALICE);
+        presence.flush();
+
+        disconnect("a1", ALICE);
+        connect("a2", ALICE);
+        when(participantRepository.findOnlineContactsOfUsers(anyCollection(), any())).thenReturn(new ArrayList<>());
+        presence.flush();
+
+        verify(broadcaster, never()).sendToLocalUser(anyString(), anyString(), any());
+    }
+
+    private void connect(String sessionId, AuthenticatedUser user) {
+        Message<byte[]> message = MessageBuilder.withPayload(new byte[0])
+            .setHeader("simpSessionId", sessionId)
+            .build();
+        presence.onConnected(new SessionConnectedEvent(this, message, user));
+    }
+
+    private void disconnect(String sessionId, AuthenticatedUser user) {
+        Message<byte[]> message = MessageBuilder.withPayload(new byte[0]).build();
+        presence.onDisconnect(new SessionDisconnectEvent(this, message, sessionId, CloseStatus.NORMAL, user));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RecentMessageCacheTest {
+
+    private static final Long CONVERSATION_ID = 7L;
+
+    @Test
+    public void firstPageIsServedFromMemoryOncePrimed() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecentMessageCache cache = new RecentMessageCache(registry, true, "simple", 5, Long.MAX_VALUE);
+
+        assertNull(cache.getNewest(CONVERSATION_ID, 3));
+        cache.prime(CONVERSATION_ID, newestFirst(10, 6), false);
+
+        assertEquals(List.of(10L, 9L, 8L), ids(cache.getNewest(CONVERSATION_ID, 3)));
+        cache.append(message(11));
+        assertEquals(List.of(11L, 10L, 9L, 8L, 7L), ids(cache.getNewest(CONVERSATION_ID, 5)));
+
+        assertEquals(1.0, registry.get("chat.message.cache.misses").counter().count());
+        assertEquals(2.0, registry.get("chat.message.cache.hits").counter().count());
+    }
+
+    @Test
+    public void isForcedOffOutsideTheSimpleBrokerMode() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), true, "postgres", 5, Long.MAX_VALUE);
+
+        assertFalse(cache.isEnabled());
+        assertNull(cache.getNewest(CONVERSATION_ID, 3));
+    }
+
+    @Test
+    public void shortConversationIsCompleteAndLargerPagesMissOtherwise() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), true, "simple", 5, Long.MAX_VALUE);
+
+        cache.getNewest(CONVERSATION_ID, 5);
+        cache.prime(CONVERSATION_ID, newestFirst(2, 1), true);
+        assertEquals(List.of(2L, 1L), ids(cache.getNewest(CONVERSATION_ID, 5)));
+
+        cache.prime(CONVERSATION_ID, newestFirst(2, 1), false);
+        assertNull(cache.getNewest(CONVERSATION_ID, 5));
+    }
+
+    @Test
+    public void messagesPersistedWhileLoadingAreMergedIntoThePrimedPage() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), true, "simple", 10, Long.MAX_VALUE);
+
+        assertNull(cache.getNewest(CONVERSATION_ID, 3));
+        // 5 committed before the page query ran, 6 after it
+        cache.append(message(5));
+        cache.append(message(6));
+        cache.prime(CONVERSATION_ID, newestFirst(5, 1), true);
+
+        assertEquals(List.of(6L, 5L, 4L), ids(cache.getNewest(CONVERSATION_ID, 3)));
+    }
+
+    @Test
+    public void resumeIsServedOnlyWhenTheBufferReachesTheCursor() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), true, "simple", 5, Long.MAX_VALUE);
+
+        assertNull(cache.getAfterSeq(CONVERSATION_ID, 7, 50));
+        cache.getNewest(CONVERSATION_ID, 5);
+        cache.prime(CONVERSATION_ID, newestFirst(10, 6), false);
+
+        assertEquals(List.of(8L, 9L, 10L), ids(cache.getAfterSeq(CONVERSATION_ID, 7, 50)));
+        assertEquals(List.of(6L, 7L), ids(cache.getAfterSeq(CONVERSATION_ID, 5, 2)));
+        assertEquals(List.of(), ids(cache.getAfterSeq(CONVERSATION_ID, 10, 50)));
+        assertNull(cache.getAfterSeq(CONVERSATION_ID, 4, 50));
+    }
+
+    @Test
+    public void missedMessageForcesAReload() {
+        RecentMessageCache cache = new RecentMessageCache(new SimpleMeterRegistry(), true, "simple", 5, Long.MAX_VALUE);
+
+        cache.getNewest(CONVERSATION_ID, 3);
+        cache.prime(CONVERSATION_ID, newestFirst(3, 1), true);
+        // 4 was written elsewhere and never appended here
+        cache.append(message(5));
+
+        assertNull(cache.getNewest(CONVERSATION_ID, 3));
+        assertNull(cache.getAfterSeq(CONVERSATION_ID, 3, 50));
+    }
+
+    @Test
+    public void leastRecentlyUsedConversationIsEvictedOverBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        long oneConversation = 3 * RecentMessageCache.estimateBytes(message(1));
+        RecentMessageCache cache = new RecentMessageCache(registry, true, "simple", 3, oneConversation * 2);
+
+        for (long conversationId = 1; conversationId <= 3; conversationId++) {
+            cache.getNewest(conversationId, 3);
+            cache.prime(conversationId, newestFirst(conversationId, 3, 1), true);
+        }
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getNewest(1L, 3));
+        assertEquals(1.0, registry.get("chat.message.cache.evictions").counter().count());
+    }
+
+    private static List<ChatMessageDTO> newestFirst(long newest, long oldest) {
+        return newestFirst(CONVERSATION_ID, newest, oldest);
+    }
+
+    private static List<ChatMessageDTO> newestFirst(long conversationId, long newest, long oldest) {
+        List<ChatMessageDTO> messages = new ArrayList<>();
+        for (long id = newest; id >= oldest; id--) {
+            messages.add(message(conversationId, id));
+        }
+        return messages;
+    }
+
+    private static ChatMessageDTO message(long id) {
+        return message(CONVERSATION_ID, id);
+    }
+
+    private static ChatMessageDTO message(long conversationId, long id) {
+        ChatMessageDTO message = new ChatMessageDTO(id, conversationId, 1L, "user@example.com", "message " + id,
+            "TEXT", "2025-01-01T00:00:00", false);
+        message.setSeq(id);
+        return message;
+    }
+
+    private static List<Long> ids(List<ChatMessageDTO> messages) {
+        return messages.stream().map(ChatMessageDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.ChatMessageDTO;
+import com.example.backend.dto.SendAckDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class SendAcknowledgerTest {
+
+    private final ConversationBroadcaster broadcaster = mock(ConversationBroadcaster.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SendAcknowledger acks = new SendAcknowledger(broadcaster, registry);
+
+    @Test
+    public void successCarriesServerIdAndSeq() {
+        ChatMessageDTO message = new ChatMessageDTO();
+        message.setId(100L);
+        message.setConversationId(7L);
+        message.setSeq(3L);
+
+        acks.acknowledge("alice@example.com", "session-1", "c-1", message);
+
+        SendAckDTO ack = captureAck();
+        assertTrue(ack.getSuccess());
+        assertEquals("c-1", ack.getClientMessageId());
+        assertEquals(100L, ack.getMessageId());
+        assertEquals(3L, ack.getSeq());
+    }
+
+    @Test
+    public void asyncFailureIsUnwrappedToItsCodeAndCounted() {
+        acks.reject("alice@example.com", "session-1", "c-2", 7L,
+            new CompletionException(new ChatException(ChatErrorCode.NOT_A_PARTICIPANT, "User is not a participant")));
+
+        SendAckDTO ack = captureAck();
+        assertFalse(ack.getSuccess());
+        assertEquals("NOT_A_PARTICIPANT", ack.getErrorCode());
+        assertEquals(1.0, registry.get("chat.message.send.failures").tag("code", "NOT_A_PARTICIPANT").counter().count());
+    }
+
+    @Test
+    public void fullQueueIsOverloadedAndUnknownErrorsAreInternal() {
+        assertEquals(ChatErrorCode.OVERLOADED, SendAcknowledger.codeOf(new RejectedExecutionException("full")));
+        assertEquals(ChatErrorCode.INTERNAL_ERROR, SendAcknowledger.codeOf(new IllegalStateException("boom")));
+    }
+
+    private SendAckDTO captureAck() {
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(broadcaster).sendToSession(eq("alice@example.com"), eq("session-1"), eq(SendAcknowledger.ACK_QUEUE), payload.capture());
+        return (SendAckDTO) payload.getValue();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.backend.service;
+
+import com.example.backend.dto.TypingStateDTO;
+import com.example.backend.util.TimeOrderedIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TypingAggregatorTest {
+
+    private final ConversationBroadcaster broadcaster = mock(ConversationBroadcaster.class);
+    private final TypingAggregator aggregator = new TypingAggregator(broadcaster, new TimeOrderedIdGenerator(3), 5000);
+
+    @Test
+    public void keystrokesWithinOneTickProduceOneBroadcast() {
+        for (int i = 0; i < 50; i++) {
+            aggregator.startTyping(1L, "bob@example.com", 1000 + i);
+            aggregator.startTyping(1L, "alice@example.com", 1000 + i);
+        }
+        aggregator.tick(1500);
+
+        ArgumentCaptor<TypingStateDTO> state = ArgumentCaptor.forClass(TypingStateDTO.class);
+        verify(broadcaster, times(1)).broadcastTyping(state.capture());
+        assertEquals(List.of("alice@example.com", "bob@example.com"), state.getValue().getUserEmails());
+        assertEquals(3, state.getValue().getNodeId());
+
+        // Still typing, nothing changed: no further traffic
+        aggregator.startTyping(1L, "bob@example.com", 1600);
+        aggregator.tick(2000);
+        verify(broadcaster, times(1)).broadcastTyping(any());
+    }
+
+    @Test
+    public void silentTypersExpireAndStoppingIsBroadcast() {
+        aggregator.startTyping(1L, "bob@example.com", 0);
+        aggregator.startTyping(1L, "alice@example.com", 4000);
+        aggregator.tick(100);
+
+        aggregator.tick(5500);
+        aggregator.stopTyping(1L, "alice@example.com");
+        aggregator.tick(6000);
+
+        ArgumentCaptor<TypingStateDTO> state = ArgumentCaptor.forClass(TypingStateDTO.class);
+        verify(broadcaster, times(3)).broadcastTyping(state.capture());
+        assertEquals(List.of("alice@example.com"), state.getAllValues().get(1).getUserEmails());
+        assertEquals(List.of(), state.getAllValues().get(2).getUserEmails());
+    }
+
+    @Test
+    public void ongoingTypingIsResentEveryHalfTtl() {
+        aggregator.startTyping(1L, "bob@example.com", 0);
+        aggregator.tick(0);
+        aggregator.startTyping(1L, "bob@example.com", 2000);
+        aggregator.tick(2000);
+        verify(broadcaster, times(1)).broadcastTyping(any());
+
+        // Unchanged, but clients would drop the set one TTL after the last broadcast
+        aggregator.tick(2500);
+        aggregator.startTyping(1L, "bob@example.com", 4000);
+        aggregator.tick(4000);
+        aggregator.tick(5000);
+
+        ArgumentCaptor<TypingStateDTO> state = ArgumentCaptor.forClass(TypingStateDTO.class);
+        verify(broadcaster, times(3)).broadcastTyping(state.capture());
+        assertEquals(List.of("bob@example.com"), state.getAllValues().get(1).getUserEmails());
+        assertEquals(List.of("bob@example.com"), state.getAllValues().get(2).getUserEmails());
+    }
+
+    @Test
+    public void stoppingWithoutTypingIsSilent() {
+        aggregator.stopTyping(1L, "bob@example.com");
+        aggregator.tick(1000);
+
+        verify(broadcaster, never()).broadcastTyping(any());
+    }
+}
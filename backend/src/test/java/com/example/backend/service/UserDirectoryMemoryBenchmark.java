@@ -0,0 +1,62 @@
+package com.example.backend.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the heap a one-million-user directory snapshot retains, as the difference in used heap
+ * after full collections with and without the snapshot reachable. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+public class UserDirectoryMemoryBenchmark {
+
+    private static final int USERS = 1_000_000;
+
+    @Test
+    public void oneMillionUsersFitInAboutOneHundredMegabytes() {
+        long before = usedHeapAfterGc();
+        UserDirectorySnapshot snapshot = build();
+        long after = usedHeapAfterGc();
+
+        long bytesPerUser = (after - before) / USERS;
+        System.out.printf("users=%d  retained=%d MB  bytesPerUser=%d%n",
+            USERS, (after - before) / (1024 * 1024), bytesPerUser);
+        assertTrue(bytesPerUser <= 110, "expected at most 110 bytes per user but was " + bytesPerUser);
+
+        List<UserDirectorySnapshot.DirectoryEntry> out = new ArrayList<>();
+        snapshot.collectPrefix("user99999", Long.MIN_VALUE, 20, out);
+        assertEquals(11, out.size()); // user99999 plus user999990..user999999
+        assertTrue(out.stream().anyMatch(user -> user.getId() == 100_000L));
+    }
+
+    private static UserDirectorySnapshot build() {
+        UserDirectorySnapshot.Builder builder = new UserDirectorySnapshot.Builder(USERS);
+        for (int i = 0; i < USERS; i++) {
+            // ~24 characters, the typical length of a real address
+            builder.add(i + 1, "user" + i + "@example.com", i % 100 == 0 ? "ADMIN" : "USER");
+        }
+        return builder.build();
+    }
+
+    // Several collections so the builder's garbage is gone before the reading is taken
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
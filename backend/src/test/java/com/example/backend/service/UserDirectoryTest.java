@@ -0,0 +1,78 @@
+package com.example.backend.service;
+
+import com.example.backend.repo.UserRepository;
+import com.example.backend.repo.UserSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UserDirectoryTest {
+
+    @Test
+    public void prefixSearchIsCaseInsensitiveOrderedAndExcludesCaller() {
+        UserDirectory directory = loadedDirectory(
+            new UserDirectorySnapshot.DirectoryEntry(1L, "bob@example.com", "USER"),
+            new UserDirectorySnapshot.DirectoryEntry(2L, "Alice@example.com", "ADMIN"),
+            new UserDirectorySnapshot.DirectoryEntry(3L, "alan@example.com", "USER"),
+            new UserDirectorySnapshot.DirectoryEntry(4L, "al@example.com", "USER")
+        );
+
+        assertEquals(List.of("al@example.com", "alan@example.com", "Alice@example.com"),
+            emails(directory.searchPrefix("AL", null, 10)));
+        assertEquals(List.of("al@example.com", "Alice@example.com"), emails(directory.searchPrefix("al", 3L, 10)));
+        assertEquals(List.of("al@example.com"), emails(directory.searchPrefix("al", null, 1)));
+        assertTrue(directory.searchPrefix("zed", null, 10).isEmpty());
+        assertEquals("ADMIN", directory.searchPrefix("alice", null, 10).get(0).getRole());
+    }
+
+    @Test
+    public void registrationsAreVisibleBeforeAndAfterMerge() {
+        UserRepository repository = mock(UserRepository.class);
+        UserDirectory directory = new UserDirectory(repository, true, 2);
+        when(repository.count()).thenReturn(1L);
+        when(repository.streamAllSummaries()).thenReturn(
+            Stream.of(new UserDirectorySnapshot.DirectoryEntry(1L, "carol@example.com", "USER")));
+        directory.load();
+
+        directory.onUserRegistered(new UserRegisteredEvent(2L, "carl@example.com", "USER"));
+        assertEquals(List.of("carl@example.com", "carol@example.com"), emails(directory.searchPrefix("car", null, 10)));
+        assertEquals(2L, directory.searchPrefix("carl", null, 10).get(0).getId());
+
+        // Second registration reaches the merge threshold and folds the overlay into the snapshot
+        directory.onUserRegistered(new UserRegisteredEvent(3L, "cara@example.com", "USER"));
+        assertEquals(List.of("cara@example.com", "carl@example.com", "carol@example.com"),
+            emails(directory.searchPrefix("car", null, 10)));
+        assertEquals(3, directory.size());
+    }
+
+    @Test
+    public void disabledDirectoryNeverBecomesReady() {
+        UserDirectory directory = new UserDirectory(mock(UserRepository.class), false, 1024);
+        directory.load();
+        directory.onUserRegistered(new UserRegisteredEvent(1L, "dave@example.com", "USER"));
+
+        assertFalse(directory.isReady());
+        assertEquals(0, directory.size());
+    }
+
+    private static UserDirectory loadedDirectory(UserSummary... users) {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.count()).thenReturn((long) users.length);
+        when(repository.streamAllSummaries()).thenReturn(Stream.of(users));
+        UserDirectory directory = new UserDirectory(repository, true, 1024);
+        directory.load();
+        return directory;
+    }
+
+    private static List<String> emails(List<UserSummary> users) {
+        return users.stream().map(UserSummary::getEmail).collect(Collectors.toList());
+    }
+}
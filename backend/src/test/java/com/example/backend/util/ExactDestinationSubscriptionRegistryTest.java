@@ -0,0 +1,100 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExactDestinationSubscriptionRegistryTest {
+
+    @Test
+    public void findsExactSubscribersThroughOneSharedView() {
+        ExactDestinationSubscriptionRegistry registry = new ExactDestinationSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/conversation.1"));
+        registry.registerSubscription(subscribe("s1", "sub-1", "/topic/conversation.1"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/conversation.1"));
+        registry.registerSubscription(subscribe("s2", "sub-1", "/topic/conversation.2"));
+
+        MultiValueMap<String, String> first = registry.findSubscriptions(send("/topic/conversation.1"));
+        assertEquals(List.of("sub-0", "sub-1"), first.get("s1"));
+        assertEquals(List.of("sub-0"), first.get("s2"));
+        assertSame(first, registry.findSubscriptions(send("/topic/conversation.1")));
+
+        List<String> before = first.get("s1");
+        registry.unregisterSubscription(unsubscribe("s1", "sub-0"));
+        MultiValueMap<String, String> second = registry.findSubscriptions(send("/topic/conversation.1"));
+        assertSame(first, second);
+        assertEquals(List.of("sub-1"), second.get("s1"));
+        // A session's id list is replaced, never mutated, so a send already iterating it is unaffected
+        assertEquals(List.of("sub-0", "sub-1"), before);
+    }
+
+    @Test
+    public void disconnectDropsEverySubscriptionAndEmptyDestinations() {
+        ExactDestinationSubscriptionRegistry registry = new ExactDestinationSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/conversation.1"));
+        registry.registerSubscription(subscribe("s1", "sub-1", "/topic/conversation.2"));
+
+        registry.unregisterAllSubscriptions("s1");
+
+        assertTrue(registry.findSubscriptions(send("/topic/conversation.1")).isEmpty());
+        assertEquals(0, registry.getDestinationCount());
+    }
+
+    @Test
+    public void patternSubscriptionsAreMergedWithExactOnes() {
+        ExactDestinationSubscriptionRegistry registry = new ExactDestinationSubscriptionRegistry();
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/conversation.1"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/conversation.*"));
+
+        MultiValueMap<String, String> found = registry.findSubscriptions(send("/topic/conversation.1"));
+        assertEquals(List.of("sub-0"), found.get("s1"));
+        assertEquals(List.of("sub-0"), found.get("s2"));
+
+        registry.unregisterAllSubscriptions("s2");
+        assertEquals(1, registry.findSubscriptions(send("/topic/conversation.1")).size());
+    }
+
+    @Test
+    public void manySessionsJoiningOneDestinationAreAllFound() {
+        ExactDestinationSubscriptionRegistry registry = new ExactDestinationSubscriptionRegistry();
+        for (int i = 0; i < 10_000; i++) {
+            registry.registerSubscription(subscribe("s" + i, "sub-0", "/topic/conversation.1"));
+        }
+
+        assertEquals(10_000, registry.findSubscriptions(send("/topic/conversation.1")).size());
+        for (int i = 0; i < 10_000; i++) {
+            registry.unregisterAllSubscriptions("s" + i);
+        }
+        assertEquals(0, registry.getDestinationCount());
+    }
+
+    static Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    static Message<byte[]> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    static Message<byte[]> send(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
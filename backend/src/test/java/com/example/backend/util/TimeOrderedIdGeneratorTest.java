@@ -0,0 +1,56 @@
+package com.example.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TimeOrderedIdGeneratorTest {
+
+    @Test
+    public void idsAreStrictlyIncreasingAndJavaScriptSafe() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(3);
+        long previous = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(id < (1L << 53));
+            previous = id;
+        }
+    }
+
+    @Test
+    public void idsCarryTheirCreationTime() {
+        TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(0);
+        long before = System.currentTimeMillis();
+        long id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        long timestamp = TimeOrderedIdGenerator.timestampMillis(id);
+        assertTrue(timestamp >= before && timestamp <= after);
+    }
+
+    @Test
+    public void nodesNeverCollide() throws InterruptedException {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int node = 0; node < 4; node++) {
+            TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(node);
+            executor.submit(() -> {
+                for (long id : generator.nextIds(50_000)) {
+                    ids.add(id);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(200_000, ids.size());
+    }
+}
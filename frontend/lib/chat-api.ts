@@ -15,6 +15,13 @@ export interface User {
   role: string;
 }
 
+export interface ConversationSync {
+  version: number;
+  full: boolean;
+  conversations: Conversation[];
+  removedConversationIds: number[];
+}
+
 export const chatApi = {
   // Get all conversations for the current user
   getConversations: async (): Promise<Conversation[]> => {
@@ -22,6 +29,13 @@ export const chatApi = {
     return response;
   },
 
+  // Get conversations changed since a previous sync; omit since for the full list
+  syncConversations: async (since?: number): Promise<ConversationSync> => {
+    const query = since ? `?since=${since}` : '';
+    const response = await apiRequest(`${API_URL}/chat/conversations/sync${query}`);
+    return response;
+  },
+
   // Create a direct conversation with another user
   createDirectConversation: async (otherUserId: number): Promise<Conversation> => {
     const response = await apiRequest(
@@ -52,6 +66,16 @@ export const chatApi = {
     return response;
   },
 
+  // Get messages missed while disconnected, keyed by conversation id.
+  // afterSeq maps each conversation id to the highest seq already shown.
+  resumeMessages: async (afterSeq: Record<number, number>): Promise<Record<number, Message[]>> => {
+    const response = await apiRequest(`${API_URL}/chat/messages/resume`, {
+      method: 'POST',
+      body: JSON.stringify({ afterSeq }),
+    });
+    return response;
+  },
+
   // Send a message (also can use WebSocket)
   sendMessage: async (
     conversationId: number,
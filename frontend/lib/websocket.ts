@@ -5,6 +5,7 @@ import SockJS from 'sockjs-client';
 export interface Message {
   id: number;
   conversationId: number;
+  seq: number;
   senderId: number;
   senderEmail: string;
   content: string;
@@ -16,6 +17,7 @@ export interface Message {
   thumbnailUrl?: string;
   createdAt: string;
   isRead: boolean;
+  clientMessageId?: string;
 }
 
 export interface Conversation {
@@ -29,6 +31,30 @@ export interface Conversation {
   updatedAt: string;
 }
 
+export interface InboxEvent {
+  type: 'MESSAGE' | 'READ' | 'JOINED' | 'LEFT' | 'UPDATED';
+  conversationId: number;
+  lastMessage?: Message;
+  unreadDelta?: number;
+  lastReadMessageId?: number;
+}
+
+export interface TypingState {
+  conversationId: number;
+  nodeId: number;
+  userEmails: string[];
+}
+
+export interface SendAck {
+  clientMessageId?: string;
+  conversationId?: number;
+  success: boolean;
+  messageId?: number;
+  seq?: number;
+  errorCode?: 'INVALID_REQUEST' | 'CONVERSATION_NOT_FOUND' | 'SENDER_NOT_FOUND' | 'NOT_A_PARTICIPANT' | 'OVERLOADED' | 'INTERNAL_ERROR';
+  error?: string;
+}
+
 export interface Participant {
   id: number;
   userId: number;
@@ -37,6 +63,10 @@ export interface Participant {
   joinedAt: string;
 }
 
+// Matches chat.typing.ttl-ms: servers re-send a non-empty typing set at least every half TTL, so a
+// node's set that has not been refreshed for a full TTL belongs to a node that went away
+const TYPING_TTL_MS = 5000;
+
 class WebSocketService {
   private client: Client | null = null;
   private subscriptions: Map<string, any> = new Map();
@@ -95,16 +125,92 @@ class WebSocketService {
     this.subscriptions.set(topic, subscription);
   }
 
+  // One subscription keeps the whole conversation list current
+  subscribeToInbox(onEvent: (event: InboxEvent) => void) {
+    if (!this.client?.active) {
+      console.error('WebSocket not connected');
+      return;
+    }
+
+    const destination = '/user/queue/inbox';
+    const subscription = this.client.subscribe(destination, (message) => {
+      onEvent(JSON.parse(message.body));
+    });
+
+    this.subscriptions.set(destination, subscription);
+  }
+
+  // Every send is answered here, matched by clientMessageId, so sends can be pipelined
+  subscribeToAcks(onAck: (ack: SendAck) => void) {
+    if (!this.client?.active) {
+      console.error('WebSocket not connected');
+      return;
+    }
+
+    const destination = '/user/queue/acks';
+    const subscription = this.client.subscribe(destination, (message) => {
+      onAck(JSON.parse(message.body));
+    });
+
+    this.subscriptions.set(destination, subscription);
+  }
+
+  // Each server node reports only its own typers, so the latest set per node is kept and the union shown
+  subscribeToTyping(conversationId: number, onTyping: (userEmails: string[]) => void) {
+    if (!this.client?.active) {
+      console.error('WebSocket not connected');
+      return;
+    }
+
+    const topic = `/topic/conversation.${conversationId}.typing`;
+    const byNode = new Map<number, string[]>();
+    const expiries = new Map<number, ReturnType<typeof setTimeout>>();
+    const emit = () => onTyping(Array.from(new Set(Array.from(byNode.values()).flat())).sort());
+    const forget = (nodeId: number) => {
+      clearTimeout(expiries.get(nodeId));
+      expiries.delete(nodeId);
+      byNode.delete(nodeId);
+    };
+
+    const subscription = this.client.subscribe(topic, (message) => {
+      const state: TypingState = JSON.parse(message.body);
+      forget(state.nodeId);
+      if (state.userEmails.length > 0) {
+        byNode.set(state.nodeId, state.userEmails);
+        expiries.set(state.nodeId, setTimeout(() => {
+          forget(state.nodeId);
+          emit();
+        }, TYPING_TTL_MS));
+      }
+      emit();
+    });
+
+    this.subscriptions.set(topic, {
+      unsubscribe: () => {
+        Array.from(expiries.keys()).forEach(forget);
+        subscription.unsubscribe();
+      },
+    });
+  }
+
   unsubscribeFromConversation(conversationId: number) {
     const topic = `/topic/conversation.${conversationId}`;
-    const subscription = this.subscriptions.get(topic);
-    if (subscription) {
-      subscription.unsubscribe();
-      this.subscriptions.delete(topic);
+    for (const destination of [topic, `${topic}.typing`]) {
+      const subscription = this.subscriptions.get(destination);
+      if (subscription) {
+        subscription.unsubscribe();
+        this.subscriptions.delete(destination);
+      }
     }
   }
 
-  sendMessage(conversationId: number, content: string, messageType: string = 'TEXT') {
+  // clientMessageId makes retries safe: resending with the same id never creates a second message
+  sendMessage(
+    conversationId: number,
+    content: string,
+    messageType: string = 'TEXT',
+    clientMessageId: string = crypto.randomUUID()
+  ) {
     if (!this.client?.active) {
       console.error('WebSocket not connected');
       return;
@@ -116,8 +222,10 @@ class WebSocketService {
         conversationId,
         content,
         messageType,
+        clientMessageId,
       }),
     });
+    return clientMessageId;
   }
 
   sendTypingIndicator(conversationId: number, isTyping: boolean) {